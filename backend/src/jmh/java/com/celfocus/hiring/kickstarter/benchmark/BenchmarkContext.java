@@ -0,0 +1,27 @@
+package com.celfocus.hiring.kickstarter.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Command-line arguments for benchmarks that boot the application: a random port, a private in-memory database
+ * and quiet logging. They are passed as arguments rather than default properties so they take precedence over
+ * {@code application.properties}.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static String[] arguments(String databaseName, String... extra) {
+        String[] arguments = {
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--logging.level.root=WARN",
+                "--logging.file.name=target/benchmark.log"
+        };
+        String[] all = Arrays.copyOf(arguments, arguments.length + extra.length);
+        System.arraycopy(extra, 0, all, arguments.length, extra.length);
+        return all;
+    }
+}
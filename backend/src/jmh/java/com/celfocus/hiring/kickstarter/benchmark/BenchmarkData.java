@@ -0,0 +1,47 @@
+package com.celfocus.hiring.kickstarter.benchmark;
+
+import com.celfocus.hiring.kickstarter.api.dto.CartItemResponse;
+import com.celfocus.hiring.kickstarter.api.dto.CartResponse;
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic fixtures shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private static final String[] CATEGORIES = {"men's clothing", "women's clothing", "jewelery", "electronics"};
+
+    private BenchmarkData() {
+    }
+
+    static String sku(int index) {
+        return "SKU" + index;
+    }
+
+    static List<ProductEntity> products(int count) {
+        List<ProductEntity> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ProductEntity product = new ProductEntity();
+            product.setSku(sku(i));
+            product.setName("Product " + i);
+            product.setDescription("Description of product " + i);
+            product.setCategory(CATEGORIES[i % CATEGORIES.length]);
+            product.setPrice(BigDecimal.valueOf(i % 100_000, 2));
+            product.setQuantity(100);
+            products.add(product);
+        }
+        return products;
+    }
+
+    static CartResponse cartResponse(int lines) {
+        List<CartItemResponse> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            items.add(new CartItemResponse(sku(i), 1 + i % 5, BigDecimal.valueOf(1999 + i, 2), "Product " + i));
+        }
+        return new CartResponse(items);
+    }
+}
@@ -0,0 +1,95 @@
+package com.celfocus.hiring.kickstarter.benchmark;
+
+import com.celfocus.hiring.kickstarter.KickstarterApplication;
+import com.celfocus.hiring.kickstarter.db.entity.CartEntity;
+import com.celfocus.hiring.kickstarter.db.repo.CartRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert rate for bursts of new carts, reported in carts per second.
+ * <p>
+ * {@code persistBurst} writes a burst through JPA, where sequence ids and JDBC batching apply;
+ * {@code upsertBurst} creates the same number of carts with the one-statement-per-cart upsert used by add-to-cart.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartInsertBenchmark {
+
+    private static final int BURST = 500;
+
+    private ConfigurableApplicationContext context;
+    private CartRepository cartRepository;
+    private TransactionTemplate transactionTemplate;
+    private long nextUser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(KickstarterApplication.class)
+                .run(BenchmarkContext.arguments("cart-insert"));
+        cartRepository = context.getBean(CartRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteCarts() {
+        cartRepository.deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public List<CartEntity> persistBurst() {
+        var now = new Date();
+        List<CartEntity> carts = new ArrayList<>(BURST);
+        for (int i = 0; i < BURST; i++) {
+            var cart = new CartEntity();
+            cart.setUserId("burst-" + nextUser++);
+            cart.setLastModified(now);
+            carts.add(cart);
+        }
+        return transactionTemplate.execute(status -> cartRepository.saveAll(carts));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public Integer upsertBurst() {
+        var now = new Date();
+        return transactionTemplate.execute(status -> {
+            int created = 0;
+            for (int i = 0; i < BURST; i++) {
+                if (cartRepository.upsertCart("burst-" + nextUser++, now).getVersion() == 1) {
+                    created++;
+                }
+            }
+            return created;
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package com.celfocus.hiring.kickstarter.benchmark;
+
+import com.celfocus.hiring.kickstarter.api.dto.CartResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the {@code GET /api/v1/carts} response body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartResponseSerializationBenchmark {
+
+    @Param({"1", "20", "200"})
+    private int lines;
+
+    private ObjectMapper objectMapper;
+    private CartResponse cartResponse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        cartResponse = BenchmarkData.cartResponse(lines);
+    }
+
+    @Benchmark
+    public byte[] writeCartResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cartResponse);
+    }
+}
@@ -0,0 +1,79 @@
+package com.celfocus.hiring.kickstarter.benchmark;
+
+import com.celfocus.hiring.kickstarter.KickstarterApplication;
+import com.celfocus.hiring.kickstarter.api.CartService;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.cache.CacheConfig;
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CartService} against an in-memory H2 database, with the full Spring context (caching, transactions).
+ * <p>
+ * Adding an item is paired with its removal so stock reservations never run dry during a long run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartServiceBenchmark {
+
+    private static final String USER = "benchmark";
+    private static final CartItemInput ITEM = new CartItemInput("SKUTEST1");
+    private static final CartItemInput OTHER_ITEM = new CartItemInput("SKUTEST2");
+
+    private ConfigurableApplicationContext context;
+    private CartService cartService;
+    private Cache cartCache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(KickstarterApplication.class)
+                .run(BenchmarkContext.arguments("cart-service"));
+        cartService = context.getBean(CartService.class);
+        cartCache = context.getBean(CacheManager.class).getCache(CacheConfig.CART_CACHE);
+        cartService.addItemToCart(USER, OTHER_ITEM, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Cart<? extends CartItem> addAndRemoveItem() {
+        cartService.addItemToCart(USER, ITEM, null);
+        return cartService.removeItemFromCart(USER, ITEM.itemId(), null);
+    }
+
+    @Benchmark
+    public Cart<? extends CartItem> getCartCached() {
+        return cartService.getCart(USER);
+    }
+
+    @Benchmark
+    public Cart<? extends CartItem> getCartUncached() {
+        cartCache.evict(USER);
+        return cartService.getCart(USER);
+    }
+}
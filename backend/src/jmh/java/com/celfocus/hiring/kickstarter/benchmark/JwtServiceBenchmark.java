@@ -0,0 +1,52 @@
+package com.celfocus.hiring.kickstarter.benchmark;
+
+import com.celfocus.hiring.kickstarter.security.JwtService;
+import com.celfocus.hiring.kickstarter.security.VerifiedToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bearer token verification: a repeat token served from the verified-token cache, and a full sign-and-verify
+ * round trip for a token that has never been seen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private JwtService jwtService;
+    private String token;
+    private int user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtService = new JwtService(new SimpleMeterRegistry());
+        token = jwtService.generateToken("john");
+    }
+
+    @Benchmark
+    public Optional<VerifiedToken> verifyRepeatToken() {
+        return jwtService.verify(token);
+    }
+
+    @Benchmark
+    public Optional<VerifiedToken> generateAndVerifyNewToken() {
+        return jwtService.verify(jwtService.generateToken("user" + user++));
+    }
+}
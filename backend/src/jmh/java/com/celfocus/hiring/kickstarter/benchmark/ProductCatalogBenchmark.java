@@ -0,0 +1,81 @@
+package com.celfocus.hiring.kickstarter.benchmark;
+
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+import com.celfocus.hiring.kickstarter.db.repo.InMemoryProductCatalog;
+import com.celfocus.hiring.kickstarter.db.repo.MappedProductCatalog;
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SKU lookups against the catalog index that backs {@code ProductRepository.findBySku}, across catalog sizes,
+ * with the catalog on the heap or memory-mapped from a snapshot file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductCatalogBenchmark {
+
+    private static final int LOOKUP_KEYS = 1024;
+
+    @Param({"1000", "100000", "1000000"})
+    private int catalogSize;
+
+    @Param({"heap", "mapped"})
+    private String catalogType;
+
+    private ProductCatalog catalog;
+    private String[] skus;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        catalog = new InMemoryProductCatalog(BenchmarkData.products(catalogSize));
+        if (catalogType.equals("mapped")) {
+            Path snapshot = Files.createTempFile("catalog", ".bin");
+            snapshot.toFile().deleteOnExit();
+            MappedProductCatalog.write(catalog, 0, snapshot);
+            catalog = MappedProductCatalog.open(snapshot);
+        }
+        skus = new String[LOOKUP_KEYS];
+        for (int i = 0; i < LOOKUP_KEYS; i++) {
+            skus[i] = BenchmarkData.sku((int) ((long) i * catalogSize / LOOKUP_KEYS));
+        }
+    }
+
+    @Benchmark
+    public Optional<ProductEntity> findBySkuHit() {
+        return catalog.findBySku(skus[next++ & (LOOKUP_KEYS - 1)]);
+    }
+
+    @Benchmark
+    public Optional<ProductEntity> findBySkuMiss() {
+        return catalog.findBySku("MISSING");
+    }
+
+    @Benchmark
+    public List<ProductEntity> findByPriceBetween() {
+        return catalog.findByPriceBetween(BigDecimal.valueOf(10), BigDecimal.valueOf(20));
+    }
+}
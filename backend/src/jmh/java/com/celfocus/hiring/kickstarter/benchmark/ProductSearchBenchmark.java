@@ -0,0 +1,69 @@
+package com.celfocus.hiring.kickstarter.benchmark;
+
+import com.celfocus.hiring.kickstarter.db.repo.InMemoryProductCatalog;
+import com.celfocus.hiring.kickstarter.search.ProductHits;
+import com.celfocus.hiring.kickstarter.search.ProductQuery;
+import com.celfocus.hiring.kickstarter.search.ProductSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product searches against the inverted index behind {@code GET /api/v1/products}, across catalog sizes: a selective
+ * word, a word held by every product (alone and within a category), a category listing and a price range.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int catalogSize;
+
+    private ProductSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = ProductSearchIndex.build(new InMemoryProductCatalog(BenchmarkData.products(catalogSize)));
+    }
+
+    @Benchmark
+    public ProductHits selectiveWord() {
+        return index.search(new ProductQuery(String.valueOf(catalogSize / 2), null, null, null, 20, null));
+    }
+
+    @Benchmark
+    public ProductHits commonWord() {
+        return index.search(new ProductQuery("product", null, null, null, 20, null));
+    }
+
+    @Benchmark
+    public ProductHits commonWordInCategory() {
+        return index.search(new ProductQuery("product", "electronics", null, null, 20, null));
+    }
+
+    @Benchmark
+    public ProductHits category() {
+        return index.search(new ProductQuery(null, "electronics", null, null, 20, null));
+    }
+
+    @Benchmark
+    public ProductHits priceRange() {
+        return index.search(new ProductQuery(null, null, BigDecimal.valueOf(10), BigDecimal.valueOf(20), 20, null));
+    }
+}
@@ -0,0 +1,148 @@
+package com.celfocus.hiring.kickstarter.benchmark;
+
+import com.celfocus.hiring.kickstarter.KickstarterApplication;
+import com.celfocus.hiring.kickstarter.api.CartService;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.security.JwtService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end cart requests over HTTP with many concurrent clients, in platform-thread mode (Tomcat pool) and
+ * virtual-thread mode. Sample-time mode reports p99/p99.9 latencies per mode.
+ * <p>
+ * Clients share a handful of carts, so some requests wait on the same H2 row locks: the case where a pinned
+ * virtual thread would hold its carrier. The live Tomcat worker and virtual-thread carrier counts at the end of
+ * each iteration are reported as secondary results ({@code tomcatWorkers}, {@code carriers}) next to the latencies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(64)
+@Fork(1)
+public class RequestThreadingBenchmark {
+
+    private static final int CARTS = 8;
+    private static final Pattern TOMCAT_WORKER = Pattern.compile("http-nio-.+-exec-\\d+");
+    private static final Pattern CARRIER = Pattern.compile("ForkJoinPool-\\d+-worker-\\d+");
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private URI cartUri;
+    private URI itemsUri;
+    private URI itemUri;
+    private String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(KickstarterApplication.class)
+                .run(BenchmarkContext.arguments("request-threading", "--spring.threads.virtual.enabled=" + virtualThreads));
+        String port = context.getEnvironment().getProperty("local.server.port");
+        cartUri = URI.create("http://localhost:" + port + "/api/v1/carts");
+        itemsUri = URI.create(cartUri + "/items");
+        itemUri = URI.create(itemsUri + "/SKUTEST1");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        JwtService jwtService = context.getBean(JwtService.class);
+        CartService cartService = context.getBean(CartService.class);
+        tokens = new String[CARTS];
+        for (int i = 0; i < CARTS; i++) {
+            tokens[i] = jwtService.generateToken("benchmark-" + i);
+            cartService.addItemToCart("benchmark-" + i, new CartItemInput("SKUTEST4"), null);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        String token;
+
+        @Setup(Level.Trial)
+        public void setUp(RequestThreadingBenchmark benchmark, ThreadParams threadParams) {
+            token = benchmark.tokens[threadParams.getThreadIndex() % CARTS];
+        }
+    }
+
+    /**
+     * Live thread counts, taken by one benchmark thread at the end of each iteration. The other threads report
+     * zero, so the per-thread sum JMH reports is the count itself.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ThreadCounts {
+        public long tomcatWorkers;
+        public long carriers;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tomcatWorkers = 0;
+            carriers = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void count(ThreadParams threadParams) {
+            if (threadParams.getThreadIndex() != 0) {
+                return;
+            }
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (TOMCAT_WORKER.matcher(thread.getName()).matches()) {
+                    tomcatWorkers++;
+                } else if (CARRIER.matcher(thread.getName()).matches()) {
+                    carriers++;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int getCart(Client client, ThreadCounts threadCounts) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(cartUri).GET(), client);
+    }
+
+    @Benchmark
+    public int addAndRemoveItem(Client client, ThreadCounts threadCounts) throws IOException, InterruptedException {
+        send(HttpRequest.newBuilder(itemsUri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"itemId\":\"SKUTEST1\"}")), client);
+        return send(HttpRequest.newBuilder(itemUri).DELETE(), client);
+    }
+
+    private int send(HttpRequest.Builder request, Client client) throws IOException, InterruptedException {
+        return this.client.send(request.header("Authorization", "Bearer " + client.token).build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -2,9 +2,11 @@ package com.celfocus.hiring.kickstarter.api;
 
 import com.celfocus.hiring.kickstarter.api.dto.AuthRequest;
 import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemOperationsInput;
 import com.celfocus.hiring.kickstarter.api.dto.CartResponse;
 import jakarta.validation.Valid;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -12,14 +14,20 @@ import org.springframework.web.bind.annotation.*;
 @Validated
 public interface CartAPI {
     @PostMapping("/items")
-    ResponseEntity<Void> addItemToCart(@Valid @RequestBody CartItemInput itemInput);
+    ResponseEntity<Void> addItemToCart(@Valid @RequestBody CartItemInput itemInput,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch);
+
+    @PatchMapping("/items")
+    ResponseEntity<CartResponse> updateItems(@Valid @RequestBody CartItemOperationsInput operationsInput,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch);
 
     @DeleteMapping
-    ResponseEntity<Void> clearCart();
+    ResponseEntity<Void> clearCart(@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch);
 
     @GetMapping
-    ResponseEntity<CartResponse> getCart();
+    ResponseEntity<CartResponse> getCart(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch);
 
     @DeleteMapping("/items/{itemId}")
-    ResponseEntity<Void> removeItemFromCart(@PathVariable("itemId") String itemId);
+    ResponseEntity<Void> removeItemFromCart(@PathVariable("itemId") String itemId,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch);
 }
@@ -1,27 +1,42 @@
 package com.celfocus.hiring.kickstarter.api;
 
 import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemOperationsInput;
 import com.celfocus.hiring.kickstarter.api.dto.CartItemResponse;
 import com.celfocus.hiring.kickstarter.api.dto.CartResponse;
 import com.celfocus.hiring.kickstarter.domain.Cart;
 import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.domain.Product;
+import com.celfocus.hiring.kickstarter.exception.PreconditionFailedException;
+import com.celfocus.hiring.kickstarter.exception.ProductDoesNotExistException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+/**
+ * Every cart response carries a strong ETag, {@code "<cart id>-<version>"}. {@code GET} answers a matching
+ * {@code If-None-Match} with 304 straight from the cached cart, before any product lookup or serialization.
+ * Mutations accept the ETag in {@code If-Match} and fail with 412 when the cart has changed since.
+ */
 @RestController
 @RequestMapping(CartAPIController.CARTS_PATH)
 public class CartAPIController implements CartAPI {
 
     private static final Logger logger = LoggerFactory.getLogger(CartAPIController.class);
     static final String CARTS_PATH = "/api/v1/carts";
+    private static final Pattern ETAG = Pattern.compile("\"(\\d{1,18})-(\\d{1,18})\"");
     private final CartService cartService;
     private final ProductService productService;
 
@@ -37,48 +52,102 @@ public class CartAPIController implements CartAPI {
     }
 
     @Override
-    public ResponseEntity<Void> addItemToCart(CartItemInput itemInput) {
+    public ResponseEntity<Void> addItemToCart(CartItemInput itemInput, String ifMatch) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        logger.info("Adding item [{}] in cart for user [{}]", itemInput.itemId(), username);
-        cartService.addItemToCart(username, itemInput);
-        logger.info("Successfully added item [{}] in cart for user [{}]", itemInput.itemId() ,username);
-        return ResponseEntity.status(201).build();
+        logger.debug("Adding item [{}] in cart for user [{}]", itemInput.itemId(), username);
+        var cart = cartService.addItemToCart(username, itemInput, expectedVersion(ifMatch));
+        logger.debug("Successfully added item [{}] in cart for user [{}]", itemInput.itemId() ,username);
+        return ResponseEntity.status(201).eTag(etag(cart)).build();
     }
 
     @Override
-    public ResponseEntity<Void> clearCart() {
+    public ResponseEntity<CartResponse> updateItems(CartItemOperationsInput operationsInput, String ifMatch) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        logger.info("Request to clear cart for user [{}] ",username);
-        cartService.clearCart(username);
-        logger.info("Cart cleared successfully for [{}]", username);
+        logger.debug("Applying [{}] item operations to cart for user [{}]", operationsInput.operations().size(), username);
+        var cart = cartService.updateItems(username, operationsInput.operations(), expectedVersion(ifMatch));
+        logger.debug("Successfully applied [{}] item operations to cart for user [{}]", operationsInput.operations().size(), username);
+        return ResponseEntity.ok().eTag(etag(cart)).body(mapToCartResponse(cart));
+    }
+
+    @Override
+    public ResponseEntity<Void> clearCart(String ifMatch) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        logger.debug("Request to clear cart for user [{}] ",username);
+        cartService.clearCart(username, expectedVersion(ifMatch));
+        logger.debug("Cart cleared successfully for [{}]", username);
         return ResponseEntity.status(204).build();
     }
 
     @Override
-    public ResponseEntity<CartResponse> getCart() {
+    public ResponseEntity<CartResponse> getCart(String ifNoneMatch) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        logger.info("GET cart for user : [{}]", username);
+        logger.debug("GET cart for user : [{}]", username);
         var cart = cartService.getCart(username);
-        logger.info("Cart retrieved successfully for user: [{}]", username);
-        return ResponseEntity.ok(mapToCartResponse(cart));
+        String etag = etag(cart);
+        if (ifNoneMatch != null && matchesAny(ifNoneMatch, etag)) {
+            logger.debug("Cart not modified for user: [{}]", username);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        logger.debug("Cart retrieved successfully for user: [{}]", username);
+        return ResponseEntity.ok().eTag(etag).body(mapToCartResponse(cart));
     }
 
     @Override
-    public ResponseEntity<Void> removeItemFromCart(String itemId) {
+    public ResponseEntity<Void> removeItemFromCart(String itemId, String ifMatch) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        logger.info("Removing item [{}] from cart for user :[{}]", itemId, username);
-        cartService.removeItemFromCart(username, itemId);
-        logger.info("Item [{}] removed successfully from cart for user :[{}]", itemId, username);
-        return ResponseEntity.status(204).build();
+        logger.debug("Removing item [{}] from cart for user :[{}]", itemId, username);
+        var cart = cartService.removeItemFromCart(username, itemId, expectedVersion(ifMatch));
+        logger.debug("Item [{}] removed successfully from cart for user :[{}]", itemId, username);
+        return ResponseEntity.status(204).eTag(etag(cart)).build();
     }
 
-    private CartResponse mapToCartResponse(Cart<? extends CartItem> cart) {
+    private static String etag(Cart<? extends CartItem> cart) {
+        return "\"" + cart.getId() + "-" + cart.getVersion() + "\"";
+    }
+
+    /**
+     * {@code If-None-Match} uses weak comparison, so {@code W/} prefixes are ignored.
+     */
+    private static boolean matchesAny(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        return new CartResponse(cart.getItems().stream().map(this::mapToCartItemResponse).collect(Collectors.toList()));
+    /**
+     * @return the version {@code If-Match} requires, or null when there is no header or it is {@code *}
+     */
+    private static CartVersion expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        Matcher matcher = ETAG.matcher(ifMatch.trim());
+        if (!matcher.matches()) {
+            throw new PreconditionFailedException("Cart has been modified");
+        }
+        return new CartVersion(Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)));
+    }
+
+    private CartResponse mapToCartResponse(Cart<? extends CartItem> cart) {
+        var skus = cart.getItems().stream().map(CartItem::getItemId).toList();
+        var products = productService.getProducts(skus);
+        return new CartResponse(cart.getItems().stream()
+                .map(item -> mapToCartItemResponse(item, products))
+                .collect(Collectors.toList()));
     }
 
-    private CartItemResponse mapToCartItemResponse(CartItem item) {
-        var product = productService.getProduct(item.getItemId());
-        return new CartItemResponse(item.getItemId(), item.getQuantity(), product.orElseThrow().getPrice(), product.orElseThrow().getName());
+    private CartItemResponse mapToCartItemResponse(CartItem item, Map<String, Product> products) {
+        var product = products.get(item.getItemId());
+        if (product == null) {
+            throw new ProductDoesNotExistException("Product does not exist");
+        }
+        return new CartItemResponse(item.getItemId(), item.getQuantity(), product.getPrice(), product.getName());
     }
 }
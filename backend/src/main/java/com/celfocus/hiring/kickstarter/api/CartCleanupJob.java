@@ -1,18 +1,39 @@
 package com.celfocus.hiring.kickstarter.api;
 
-import com.celfocus.hiring.kickstarter.db.entity.CartEntity;
-import com.celfocus.hiring.kickstarter.db.repo.CartRepository;
+import com.celfocus.hiring.kickstarter.cache.CacheConfig;
+import com.celfocus.hiring.kickstarter.store.CartStore;
+import com.celfocus.hiring.kickstarter.util.Caches;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
+ * Purges carts that have not been modified for a day.
+ * <p>
+ * Expired carts are removed from the {@link CartStore} in bounded batches, each in its own transaction, so a
+ * backlog of expired carts never has to be loaded into memory. The stock they held is handed back to the
+ * {@link InventoryService} once the batch commits.
+ * <p>
+ * A store made of several {@linkplain CartStore#partitions() partitions}, such as the shards of a sharded store,
+ * is purged one task per partition on the application task executor, so shards are cleaned up in parallel.
+ *
  * @author amjad.afifi
  */
 @Service
@@ -21,20 +42,72 @@ public class CartCleanupJob {
     private static final Logger logger = LoggerFactory.getLogger(CartCleanupJob.class);
 
     @Autowired
-    private CartRepository cartRepository;
+    private CartStore cartStore;
     @Autowired
-    private CartService cartService;
+    private InventoryService inventoryService;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private AsyncTaskExecutor taskExecutor;
+
+    @Value("${kickstarter.cart.cleanup.batch-size:500}")
+    private int batchSize;
 
     private static final long EXPIRATION_MS = Duration.ofDays(1).toMillis();
     @Scheduled(fixedRate = 5 * 60 * 1000)
     public void removeInactiveCarts() {
         logger.info("Cart cleanup job running...");
         Date expirationCutoff = new Date(System.currentTimeMillis() - EXPIRATION_MS);
+        Timer.Sample sample = Timer.start(meterRegistry);
 
-        List<CartEntity> oldCarts = cartRepository.findAllByLastModifiedBefore(expirationCutoff);
+        List<? extends CartStore> partitions = cartStore.partitions();
+        int purged;
+        if (partitions.size() == 1) {
+            purged = purgeAll(partitions.get(0), expirationCutoff);
+        } else {
+            List<CompletableFuture<Integer>> runs = partitions.stream()
+                    .map(partition -> taskExecutor.submitCompletable(() -> purgeAll(partition, expirationCutoff)))
+                    .toList();
+            purged = runs.stream().mapToInt(CompletableFuture::join).sum();
+        }
 
-        for (CartEntity cart : oldCarts) {
-            cartService.clearCart(cart.getUserId());
+        long elapsedNanos = sample.stop(meterRegistry.timer("cart.cleanup.duration"));
+        logger.info("Cart cleanup job purged [{}] carts in [{}] ms", purged, Duration.ofNanos(elapsedNanos).toMillis());
+    }
+
+    private int purgeAll(CartStore partition, Date expirationCutoff) {
+        int purged = 0;
+        int selected;
+        do {
+            selected = purgeBatch(partition, expirationCutoff);
+            purged += selected;
+        } while (selected == batchSize);
+        return purged;
+    }
+
+    private int purgeBatch(CartStore partition, Date expirationCutoff) {
+        CartStore.PurgedCarts purged = transactionTemplate.execute(status -> {
+            var batch = partition.purgeExpired(expirationCutoff, batchSize);
+            batch.quantities().forEach(inventoryService::release);
+            return batch;
+        });
+        if (purged.userIds().isEmpty()) {
+            return 0;
         }
+
+        Cache cache = cacheManager.getCache(CacheConfig.CART_CACHE);
+        if (cache != null) {
+            Caches.evictAll(cache, purged.userIds());
+        }
+
+        Counter.builder("cart.cleanup.purged").tag("type", "item").register(meterRegistry).increment(purged.items());
+        Counter.builder("cart.cleanup.purged").tag("type", "cart").register(meterRegistry).increment(purged.carts());
+        logger.debug("Purged [{}] carts and [{}] items", purged.carts(), purged.items());
+        return purged.userIds().size();
     }
-}
\ No newline at end of file
+}
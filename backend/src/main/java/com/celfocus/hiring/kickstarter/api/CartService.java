@@ -1,168 +1,290 @@
 package com.celfocus.hiring.kickstarter.api;
 
 import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
-import com.celfocus.hiring.kickstarter.db.entity.CartEntity;
-import com.celfocus.hiring.kickstarter.db.entity.CartItemEntity;
-import com.celfocus.hiring.kickstarter.db.entity.CartItemPK;
-import com.celfocus.hiring.kickstarter.db.repo.CartItemRepository;
-import com.celfocus.hiring.kickstarter.db.repo.CartRepository;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemOperation;
+import com.celfocus.hiring.kickstarter.cache.CacheConfig;
+import com.celfocus.hiring.kickstarter.cache.Tombstone;
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
 import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
 import com.celfocus.hiring.kickstarter.domain.Cart;
 import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
 import com.celfocus.hiring.kickstarter.domain.Product;
+import com.celfocus.hiring.kickstarter.exception.BadRequestException;
 import com.celfocus.hiring.kickstarter.exception.CartNotFoundException;
 import com.celfocus.hiring.kickstarter.exception.InsufficientStockException;
 import com.celfocus.hiring.kickstarter.exception.ItemNotFoundException;
 import com.celfocus.hiring.kickstarter.exception.ProductDoesNotExistException;
+import com.celfocus.hiring.kickstarter.store.CartStore;
+import com.celfocus.hiring.kickstarter.store.Carts;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Cart use cases on top of the configured {@link CartStore}.
+ * <p>
+ * Every store change is the last step of its method, after stock has been reserved, so a failed reservation
+ * never leaves a half-applied cart behind whichever engine is in use.
+ * <p>
+ * Every change bumps the cart's version. Mutations take the {@link CartVersion} the client last saw, or null:
+ * when given, the change fails with {@code PreconditionFailedException} if the cart has been changed since.
+ * <p>
+ * A method that loses a race with a concurrent change to the same cart (an optimistic lock failure, or two
+ * requests creating the cart at once) is retried in a new transaction, with randomised exponential backoff, up to
+ * {@code kickstarter.cart.retry.max-attempts} times. The retry wraps the transaction and the cache, so every
+ * attempt reads fresh data and only the successful one is cached; stock reserved by a failed attempt is handed
+ * back when its transaction rolls back.
+ * <p>
+ * Every public method is timed as {@code cart.service}, tagged with the method name.
+ */
 @Service
 @Transactional
+@Retryable(retryFor = {ConcurrencyFailureException.class, DuplicateKeyException.class},
+        maxAttemptsExpression = "${kickstarter.cart.retry.max-attempts:5}",
+        backoff = @Backoff(delayExpression = "${kickstarter.cart.retry.delay-ms:5}",
+                maxDelayExpression = "${kickstarter.cart.retry.max-delay-ms:100}",
+                multiplierExpression = "${kickstarter.cart.retry.multiplier:2}", random = true))
+@Timed(value = "cart.service", histogram = true)
 public class CartService {
     private static final Logger logger = LoggerFactory.getLogger(CartService.class);
-    private final CartRepository cartRepository;
-    private final CartItemRepository cartItemRepository;
+    private final CartStore cartStore;
     private final ProductRepository productRepository;
+    private final InventoryService inventoryService;
+    private final CacheManager cacheManager;
 
     @Autowired
-    public CartService(CartRepository cartRepository, CartItemRepository cartItemRepository, ProductRepository productRepository) {
-        this.cartRepository = cartRepository;
-        this.cartItemRepository = cartItemRepository;
+    public CartService(CartStore cartStore, ProductRepository productRepository, InventoryService inventoryService,
+                       CacheManager cacheManager) {
+        this.cartStore = cartStore;
         this.productRepository = productRepository;
+        this.inventoryService = inventoryService;
+        this.cacheManager = cacheManager;
     }
 
-    @CacheEvict(value = "cart", key = "#username")
-    public void addItemToCart(String username, CartItemInput itemInput) {
+    /**
+     * Mutations return the updated cart and write it through to the {@code cart} cache,
+     * so a read that follows a write is served from memory.
+     * <p>
+     * Adding an item is a single store call that creates the cart and line as needed and enforces the
+     * stock limit. The returned cart is derived from the cached one when that is the version just before this
+     * change, and reloaded otherwise.
+     */
+    @CachePut(value = CacheConfig.CART_CACHE, key = "#username")
+    public Cart<? extends CartItem> addItemToCart(String username, CartItemInput itemInput, CartVersion expected) {
         logger.trace("In method addItemToCart");
-        var cart = cartRepository.findByUserId(username).orElseGet(() -> {
-            logger.debug("No cart found for user: [{}], creating new cart", username);
-            var newCart = new CartEntity();
-            newCart.setUserId(username);
-            newCart.setLastModified(new Date());
-            return cartRepository.save(newCart);
-        });
-
-        logger.debug("Cart ID [{}] loaded for user [{}]", cart.getId(), username);
         var product = productRepository.findBySku(itemInput.itemId())
                 .orElseThrow(() -> {
-                    logger.error("Product with SKU [{}] does not exist", itemInput.itemId());
+                    logger.debug("Product with SKU [{}] does not exist", itemInput.itemId());
                     return new ProductDoesNotExistException("Product does not exist");}
                 );
 
         logger.debug("Found product [{}] with price [{}]", product.getSku(), product.getPrice());
+        if (!inventoryService.reserve(product.getSku(), 1)) {
+            logger.debug("Not enough stock to add this item. Item: [{}]. Available [{}]",
+                    itemInput.itemId(), inventoryService.getAvailable(product.getSku()));
+            throw new InsufficientStockException("Not enough stock to add this item");
+        }
 
-        cartItemRepository.findById(new CartItemPK(itemInput.itemId(), cart.getId()))
-                .ifPresentOrElse(
-                        (existingItem) -> {
-                        int newQuantity = existingItem.getQuantity() + 1;
-                            if(newQuantity > product.getQuantity()) {
-                                logger.error("Cannot add more items. Requested [{}], Available [{}]",
-                                        newQuantity, product.getQuantity());
-                                throw new InsufficientStockException("Not enough stock to add more of this item");
-                            }
-                                logger.info("Item already exists in cart. Updating quantity.");
-                                updateItemQuantity(existingItem, 1);
-                        }, () -> {
-
-                            if(product.getQuantity() < 1) {
-                                logger.error("Not enough stock to add this item. Item: [{}]. Quantity [{}]",
-                                        itemInput.itemId(), product.getQuantity());
-                                throw new InsufficientStockException("Not enough stock to add this item");
-                            }
-                            logger.info("Item not in cart. Adding new item.");
-                            addNewItemToCart(itemInput, cart, product);
+        var now = new Date();
+        var added = cartStore.addItem(username, expected, product.getSku(), product.getPrice(), 1, product.getQuantity(), now)
+                .orElseThrow(() -> {
+                    logger.debug("Not enough stock to add this item. Item: [{}]. Available [{}]",
+                            itemInput.itemId(), product.getQuantity());
+                    return new InsufficientStockException("Not enough stock to add this item");
                 });
-        cart.setLastModified(new Date());
-        cartRepository.save(cart);
-        logger.debug("Finished addItemToCart for user: [{}]", username);
+        logger.debug("Finished addItemToCart for user: [{}]. Item [{}] quantity is now [{}]", username, product.getSku(), added.quantity());
+
+        Cart<? extends CartItem> cached = getCachedCart(username);
+        if (cached != null && added.version().equals(CartVersion.of(cached).next())) {
+            return withItemQuantity(cached, product, added, now);
+        }
+        return cartStore.find(username).orElseThrow();
     }
 
-    private void addNewItemToCart(CartItemInput itemInput, CartEntity cart, Product product) {
-        var cartItem = new CartItemEntity();
-        cartItem.setQuantity(1);
-        cartItem.setItemId(itemInput.itemId());
-        cartItem.setCartId(cart.getId());
-        cartItem.setCart(cart);
-        cartItem.setPrice(product.getPrice());
-        cartItemRepository.save(cartItem);
-        logger.debug("Finished Adding new item to cart: [{}]. Cart: [{}] and Product [{}]", itemInput, cart.getId(), product.getSku());
+    @SuppressWarnings("unchecked")
+    private Cart<? extends CartItem> getCachedCart(String username) {
+        Cache cache = cacheManager.getCache(CacheConfig.CART_CACHE);
+        return cache == null ? null : cache.get(username, Cart.class);
     }
 
-    private void updateItemQuantity(CartItemEntity item, int byCount) {
-        setItemQuantity(item, item.getQuantity() + byCount);
-        logger.debug("Updating item [{}] to quantity [{}]", item.getItemId(), item.getQuantity() + byCount);
+    private Cart<? extends CartItem> withItemQuantity(Cart<? extends CartItem> cached, Product product, CartStore.ItemAdded added,
+                                                      Date lastModified) {
+        var item = Carts.newItem(cached.getId(), product.getSku(), product.getPrice(), added.quantity());
+
+        List<CartItem> items = new ArrayList<>(cached.getItems().size() + 1);
+        boolean replaced = false;
+        for (CartItem existing : cached.getItems()) {
+            if (existing.getItemId().equals(item.getItemId())) {
+                items.add(item);
+                replaced = true;
+            } else {
+                items.add(existing);
+            }
+        }
+        if (!replaced) {
+            items.add(item);
+        }
+
+        return Carts.newCart(cached.getId(), cached.getUserId(), added.version().version(), items, lastModified);
     }
 
-    private void setItemQuantity(CartItemEntity item, int quantity) {
-        logger.debug("Setting item [{}] to quantity [{}]", item.getItemId(), item.getQuantity());
-        item.setQuantity(quantity);
-        cartItemRepository.save(item);
-        logger.debug("Item [{}] quantity set to [{}] successfully", item.getItemId(), item.getQuantity());
+    /**
+     * Applies a batch of line operations in one transaction and returns the resulting cart.
+     * <p>
+     * Operations are folded into a target quantity per line first, so the catalog is read once and stock is
+     * checked once per SKU for the whole batch; the batch fails as a whole if any line is short. The store then
+     * writes all changed lines at once (as JDBC batches for the JPA store).
+     */
+    @CachePut(value = CacheConfig.CART_CACHE, key = "#username")
+    public Cart<? extends CartItem> updateItems(String username, List<CartItemOperation> operations, CartVersion expected) {
+        logger.debug("Applying [{}] item operations to cart for user: [{}]", operations.size(), username);
+        Map<String, ProductEntity> products = new HashMap<>();
+        for (ProductEntity product : productRepository.findBySkuIn(operations.stream().map(CartItemOperation::itemId).distinct().toList())) {
+            products.put(product.getSku(), product);
+        }
+
+        var cart = cartStore.createOrUpdate(username, expected, new Date(), lines -> {
+            Map<String, CartItem> current = new HashMap<>();
+            Map<String, Integer> quantities = new LinkedHashMap<>();
+            for (CartItem line : lines) {
+                current.put(line.getItemId(), line);
+                quantities.put(line.getItemId(), line.getQuantity());
+            }
+            for (CartItemOperation operation : operations) {
+                applyOperation(username, operation, products, quantities);
+            }
+
+            List<String> insufficient = new ArrayList<>();
+            quantities.forEach((sku, quantity) -> {
+                var line = current.get(sku);
+                int reserved = quantity - (line == null ? 0 : line.getQuantity());
+                if (reserved > 0 && (quantity > products.get(sku).getQuantity() || !inventoryService.reserve(sku, reserved))) {
+                    insufficient.add(sku);
+                }
+            });
+            if (!insufficient.isEmpty()) {
+                logger.debug("Not enough stock to update cart for user [{}]. Items: {}", username, insufficient);
+                throw new InsufficientStockException("Not enough stock for items: " + insufficient);
+            }
+
+            List<CartItem> updated = new ArrayList<>(quantities.size());
+            quantities.forEach((sku, quantity) -> {
+                var line = current.get(sku);
+                if (line != null && quantity < line.getQuantity()) {
+                    inventoryService.release(sku, line.getQuantity() - quantity);
+                }
+                if (quantity > 0) {
+                    var price = line == null ? products.get(sku).getPrice() : line.getPrice();
+                    updated.add(Carts.newItem(null, sku, price, quantity));
+                }
+            });
+            return updated;
+        });
+        logger.debug("Applied [{}] item operations to cart for user [{}]", operations.size(), username);
+        return cart;
     }
-    @CacheEvict(value = "cart", key = "#username")
-    public void clearCart(String username) {
+
+    private void applyOperation(String username, CartItemOperation operation, Map<String, ProductEntity> products,
+                                Map<String, Integer> quantities) {
+        String sku = operation.itemId();
+        Integer quantity = operation.quantity();
+        switch (operation.action()) {
+            case ADD, SET -> {
+                if (!products.containsKey(sku)) {
+                    logger.debug("Product with SKU [{}] does not exist", sku);
+                    throw new ProductDoesNotExistException("Product does not exist");
+                }
+                if (quantity == null || (operation.action() == CartItemOperation.Action.ADD && quantity == 0)) {
+                    throw new BadRequestException("A positive quantity is required to " + operation.action() + " item " + sku);
+                }
+                if (operation.action() == CartItemOperation.Action.ADD) {
+                    quantities.merge(sku, quantity, Integer::sum);
+                } else {
+                    quantities.put(sku, quantity);
+                }
+            }
+            case REMOVE -> {
+                Integer current = quantities.get(sku);
+                if (current == null || current == 0) {
+                    logger.debug("Item [{}] not found in cart for user: [{}]", sku, username);
+                    throw new ItemNotFoundException("Item not found in cart");
+                }
+                quantities.put(sku, quantity == null ? 0 : Math.max(0, current - quantity));
+            }
+        }
+    }
+
+    /**
+     * Leaves the deleted cart's {@link Tombstone} in the {@code cart} cache rather than evicting it, so that the
+     * write-through of a change that committed just before cannot put the cart back.
+     */
+    public void clearCart(String username, CartVersion expected) {
         logger.debug("Clearing cart for user: [{}]", username);
-        var cart = cartRepository.findByUserId(username)
+        var cart = cartStore.delete(username, expected)
                 .orElseThrow(() -> {
-                    logger.error("Cart not found for user: [{}]", username);
-                    return new CartNotFoundException("Cart not found for user: " + username);
+                    logger.debug("Cart not found for user: [{}]", username);
+                    return new CartNotFoundException("Cart not found");
                 });
+        Cache cache = cacheManager.getCache(CacheConfig.CART_CACHE);
+        Tombstone tombstone = Tombstone.of(cart);
+        if (cache != null && tombstone != null) {
+            cache.put(username, tombstone);
+        } else if (cache != null) {
+            cache.evict(username);
+        }
 
-        logger.debug("Deleting cart with ID [{}] for user [{}]", cart.getId(), username);
-        cartRepository.delete(cart);
-        cart.setLastModified(new Date());
-        logger.info("Cart cleared successfully for user: [{}]", username);
+        cart.getItems().forEach(item -> inventoryService.release(item.getItemId(), item.getQuantity()));
+        logger.debug("Cart cleared successfully for user: [{}]", username);
     }
 
-    @Cacheable(value = "cart", key = "#username")
+    @Cacheable(value = CacheConfig.CART_CACHE, key = "#username")
+    @Transactional(readOnly = true)
     public Cart<? extends CartItem> getCart(String username) {
         logger.debug("Getting cart for user: [{}]", username);
-        return cartRepository.findByUserId(username)
-                .map(this::mapToCart)
+        return cartStore.find(username)
                 .orElseThrow(() -> {
-                    logger.error("Could not get cart for [{}]. Cart not found" , username);
-                    return new CartNotFoundException("Cart not found for user: " + username);
+                    logger.debug("Could not get cart for [{}]. Cart not found" , username);
+                    return new CartNotFoundException("Cart not found");
                 });
     }
 
-    @CacheEvict(value = "cart", key = "#username")
-    public void removeItemFromCart(String username, String itemId) {
+    @CachePut(value = CacheConfig.CART_CACHE, key = "#username")
+    public Cart<? extends CartItem> removeItemFromCart(String username, String itemId, CartVersion expected) {
         logger.debug("Remove item [{}] from cart for user: [{}]", itemId, username);
-        var cart = cartRepository.findByUserId(username)
-                .orElseThrow(() -> {
-                    logger.warn("Cart not found for user [{}] while removing item", username);
-                    return new CartNotFoundException("Cart not found for user: " + username);
-                }
-        );
-
-        logger.debug("Found cart for user: [{}]", username);
-        var cartItemId = new CartItemPK(itemId, cart.getId());
-
-        if (!cartItemRepository.existsById(cartItemId)) {
-            logger.debug("Removing item [{}] from cart for user: [{}]", itemId, username);
-            throw new ItemNotFoundException("Item not found in cart");
-        }
-
-        cartItemRepository.deleteById(cartItemId);
-        cart.setLastModified(new Date());
-        cartRepository.save(cart);
-        logger.info("Item [{}] removed from cart for user [{}]", itemId, username);
-    }
-
-    private Cart<? extends CartItem> mapToCart(CartEntity cartEntity) {
-        logger.debug("Mapping cart...");
-        Cart<CartItemEntity> cart = new Cart<>();
-        cart.setUserId(cartEntity.getUserId());
-        cart.setItems(cartEntity.getItems());
+        var cart = cartStore.update(username, expected, new Date(), lines -> {
+            var cartItem = lines.stream()
+                    .filter(item -> itemId.equals(item.getItemId()))
+                    .findFirst()
+                    .orElseThrow(() -> {
+                        logger.debug("Item [{}] not found in cart for user: [{}]", itemId, username);
+                        return new ItemNotFoundException("Item not found in cart");
+                    });
+            inventoryService.release(itemId, cartItem.getQuantity());
+            return lines.stream().filter(item -> item != cartItem).toList();
+        }).orElseThrow(() -> {
+            logger.debug("Cart not found for user [{}] while removing item", username);
+            return new CartNotFoundException("Cart not found");
+        });
+        logger.debug("Item [{}] removed from cart for user [{}]", itemId, username);
         return cart;
     }
 }
@@ -0,0 +1,43 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.cache.CacheConfig;
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalogSource;
+import com.celfocus.hiring.kickstarter.search.ProductSearch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Checks the catalog files for changes and swaps in the new catalog. The inventory then follows the new stock,
+ * the search index is rebuilt and the {@code products} cache is cleared, so new prices are served without a restart.
+ */
+@Service
+public class CatalogReloadJob {
+
+    @Autowired
+    private ProductCatalogSource catalogSource;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductSearch productSearch;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Scheduled(fixedDelayString = "${kickstarter.catalog.reload-interval-ms:10000}",
+            initialDelayString = "${kickstarter.catalog.reload-interval-ms:10000}")
+    public void reload() {
+        catalogSource.reload().ifPresent(change -> {
+            inventoryService.restock(change.previous(), change.current());
+            productSearch.reindex(change.current());
+            Cache products = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+            if (products != null) {
+                products.clear();
+            }
+        });
+    }
+}
@@ -0,0 +1,120 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalog;
+import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
+import com.celfocus.hiring.kickstarter.store.CartStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the stock still available per SKU, so adding to a cart reserves units and concurrent shoppers cannot oversell.
+ * <p>
+ * Each SKU has its own atomic counter, updated with a compare-and-set loop: reservations never take a lock and
+ * never touch the database, and shoppers only contend with others buying the same SKU. Counters are seeded from
+ * the catalog stock minus what carts already hold, and follow the catalog's stock when it is reloaded.
+ * <p>
+ * When called inside a transaction, a reservation is handed back if the transaction rolls back, and a release
+ * only takes effect once the transaction commits.
+ */
+@Service
+public class InventoryService {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryService.class);
+    private final Map<String, AtomicInteger> available;
+
+    @Autowired
+    public InventoryService(ProductRepository productRepository, CartStore cartStore) {
+        Map<String, AtomicInteger> stock = new HashMap<>();
+        for (ProductEntity product : productRepository.findAll()) {
+            stock.put(product.getSku(), new AtomicInteger(product.getQuantity()));
+        }
+        cartStore.reservedQuantities().forEach((sku, quantity) -> {
+            var counter = stock.get(sku);
+            if (counter != null) {
+                counter.addAndGet(-quantity);
+            }
+        });
+        this.available = new ConcurrentHashMap<>(stock);
+        logger.debug("Inventory initialised for [{}] SKUs", available.size());
+    }
+
+    /**
+     * @return {@code true} if {@code quantity} units were reserved, {@code false} if not enough stock is left
+     */
+    public boolean reserve(String sku, int quantity) {
+        var counter = available.get(sku);
+        if (counter == null) {
+            return false;
+        }
+        int current;
+        do {
+            current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current - quantity));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        counter.addAndGet(quantity);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    public void release(String sku, int quantity) {
+        var counter = available.get(sku);
+        if (counter == null || quantity <= 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    counter.addAndGet(quantity);
+                }
+            });
+        } else {
+            counter.addAndGet(quantity);
+        }
+    }
+
+    /**
+     * Moves each SKU's available units by the change in its catalog stock, so units already in carts stay
+     * reserved. A SKU dropped from the catalog keeps its counter, at minus the units still in carts, so it
+     * cannot be reserved and comes back with the right count if it is listed again.
+     */
+    public void restock(ProductCatalog previous, ProductCatalog current) {
+        for (ProductEntity product : current.findAll()) {
+            int before = previous.findBySku(product.getSku()).map(ProductEntity::getQuantity).orElse(0);
+            if (product.getQuantity() != before) {
+                available.computeIfAbsent(product.getSku(), sku -> new AtomicInteger()).addAndGet(product.getQuantity() - before);
+            }
+        }
+        for (ProductEntity product : previous.findAll()) {
+            var counter = available.get(product.getSku());
+            if (counter != null && current.findBySku(product.getSku()).isEmpty()) {
+                counter.addAndGet(-product.getQuantity());
+            }
+        }
+    }
+
+    public int getAvailable(String sku) {
+        var counter = available.get(sku);
+        return counter == null ? 0 : counter.get();
+    }
+}
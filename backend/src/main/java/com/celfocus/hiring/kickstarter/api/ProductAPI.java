@@ -0,0 +1,18 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.api.dto.ProductSearchResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.math.BigDecimal;
+
+public interface ProductAPI {
+    @GetMapping
+    ResponseEntity<ProductSearchResponse> searchProducts(@RequestParam(value = "q", required = false) String text,
+                                                         @RequestParam(value = "category", required = false) String category,
+                                                         @RequestParam(value = "minPrice", required = false) BigDecimal minPrice,
+                                                         @RequestParam(value = "maxPrice", required = false) BigDecimal maxPrice,
+                                                         @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                                         @RequestParam(value = "cursor", required = false) String cursor);
+}
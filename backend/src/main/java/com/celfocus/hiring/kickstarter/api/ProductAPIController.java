@@ -0,0 +1,53 @@
+package com.celfocus.hiring.kickstarter.api;
+
+import com.celfocus.hiring.kickstarter.api.dto.ProductResponse;
+import com.celfocus.hiring.kickstarter.api.dto.ProductSearchResponse;
+import com.celfocus.hiring.kickstarter.domain.Product;
+import com.celfocus.hiring.kickstarter.search.ProductQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Product search: {@code q} matches words of the name and description, {@code category}, {@code minPrice} and
+ * {@code maxPrice} filter, and results come ranked by relevance, or in catalog order without {@code q}. Pass a
+ * response's {@code nextCursor} as {@code cursor} to get the next page.
+ */
+@RestController
+@RequestMapping(ProductAPIController.PRODUCTS_PATH)
+public class ProductAPIController implements ProductAPI {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductAPIController.class);
+    static final String PRODUCTS_PATH = "/api/v1/products";
+    private final ProductService productService;
+
+    @Autowired
+    public ProductAPIController(ProductService productService) {
+        this.productService = productService;
+    }
+
+    @Override
+    public ResponseEntity<ProductSearchResponse> searchProducts(String text, String category, BigDecimal minPrice,
+                                                                BigDecimal maxPrice, int limit, String cursor) {
+        logger.debug("Searching products for [{}] in category [{}]", text, category);
+        var hits = productService.search(new ProductQuery(text, category, minPrice, maxPrice, limit, cursor));
+        Map<String, Product> products = productService.getProducts(hits.skus());
+        List<ProductResponse> page = new ArrayList<>(hits.skus().size());
+        for (String sku : hits.skus()) {
+            Product product = products.get(sku);
+            if (product != null) {
+                page.add(new ProductResponse(product.getSku(), product.getName(), product.getDescription(),
+                        product.getCategory(), product.getPrice(), product.getimageUrl(), product.getQuantity()));
+            }
+        }
+        return ResponseEntity.ok(new ProductSearchResponse(page, hits.total(), hits.categories(), hits.nextCursor()));
+    }
+}
@@ -1,33 +1,101 @@
 package com.celfocus.hiring.kickstarter.api;
 
+import com.celfocus.hiring.kickstarter.cache.CacheConfig;
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
 import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
 import com.celfocus.hiring.kickstarter.domain.Product;
+import com.celfocus.hiring.kickstarter.exception.BadRequestException;
+import com.celfocus.hiring.kickstarter.search.ProductHits;
+import com.celfocus.hiring.kickstarter.search.ProductQuery;
+import com.celfocus.hiring.kickstarter.search.ProductSearch;
+import com.celfocus.hiring.kickstarter.util.Caches;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Catalog lookups, served from the {@code products} cache where possible. Every public method is timed as
+ * {@code product.catalog}, tagged with the method name, so cache hits and database loads show up together.
+ */
 @Service
+@Timed(value = "product.catalog", histogram = true)
 public class ProductService {
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
+    static final int MAX_PAGE_SIZE = 100;
     private final ProductRepository productRepository;
+    private final CacheManager cacheManager;
+    private final ProductSearch productSearch;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, CacheManager cacheManager, ProductSearch productSearch) {
         this.productRepository = productRepository;
+        this.cacheManager = cacheManager;
+        this.productSearch = productSearch;
     }
 
     public List<? extends Product> getProducts() {
         logger.debug("Getting all products");
         return productRepository.findAll();
     }
-    @Cacheable(value = "products", key = "#sku")
+    @Cacheable(value = CacheConfig.PRODUCTS_CACHE, key = "#sku")
     public Optional<? extends Product> getProduct(String sku) {
         logger.debug("Getting product [{}]", sku);
         return productRepository.findBySku(sku);
     }
+
+    public ProductHits search(ProductQuery query) {
+        if (query.limit() < 1 || query.limit() > MAX_PAGE_SIZE) {
+            throw new BadRequestException("The page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        logger.debug("Searching products for [{}]", query.text());
+        return productSearch.search(query);
+    }
+
+    /**
+     * Resolves several products at once: a single multi-get on the {@code products} cache, then one
+     * batch repository lookup for the misses, which are written back to the cache.
+     *
+     * @return the products found, keyed by SKU; unknown SKUs are absent from the map
+     */
+    public Map<String, Product> getProducts(Collection<String> skus) {
+        logger.debug("Getting [{}] products", skus.size());
+        Map<String, Product> products = new HashMap<>();
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+        if (cache != null) {
+            Caches.getAllPresent(cache, skus).forEach((sku, product) -> {
+                if (product instanceof Product cached) {
+                    products.put((String) sku, cached);
+                }
+            });
+        }
+
+        List<String> misses = new ArrayList<>();
+        for (String sku : skus) {
+            if (!products.containsKey(sku)) {
+                misses.add(sku);
+            }
+        }
+        if (!misses.isEmpty()) {
+            logger.debug("Loading [{}] products missing from cache", misses.size());
+            for (ProductEntity product : productRepository.findBySkuIn(misses)) {
+                products.put(product.getSku(), product);
+                if (cache != null) {
+                    cache.put(product.getSku(), product);
+                }
+            }
+        }
+        return products;
+    }
 }
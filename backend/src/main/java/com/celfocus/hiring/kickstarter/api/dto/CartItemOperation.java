@@ -0,0 +1,19 @@
+package com.celfocus.hiring.kickstarter.api.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+
+/**
+ * One change to a cart line, applied in order with the rest of its batch.
+ *
+ * @param action   {@code ADD} and {@code SET} require a quantity; {@code REMOVE} without one drops the whole line
+ * @param itemId   same value as the `sku`
+ * @param quantity units to add, remove or set; setting 0 drops the line
+ */
+public record CartItemOperation(@NotNull Action action, @NotBlank String itemId, @PositiveOrZero Integer quantity) {
+
+    public enum Action {
+        ADD, REMOVE, SET
+    }
+}
@@ -0,0 +1,10 @@
+package com.celfocus.hiring.kickstarter.api.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record CartItemOperationsInput(@NotEmpty @Size(max = 100) List<@Valid CartItemOperation> operations) {
+}
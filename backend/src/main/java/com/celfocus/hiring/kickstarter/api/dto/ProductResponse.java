@@ -0,0 +1,7 @@
+package com.celfocus.hiring.kickstarter.api.dto;
+
+import java.math.BigDecimal;
+
+public record ProductResponse(String sku, String name, String description, String category, BigDecimal price,
+                              String imageUrl, int quantity) {
+}
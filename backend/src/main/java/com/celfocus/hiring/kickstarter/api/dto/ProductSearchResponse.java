@@ -0,0 +1,8 @@
+package com.celfocus.hiring.kickstarter.api.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public record ProductSearchResponse(List<ProductResponse> products, int total, Map<String, Integer> categories,
+                                    String nextCursor) {
+}
@@ -0,0 +1,151 @@
+package com.celfocus.hiring.kickstarter.cache;
+
+import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Bounded Caffeine caches for carts and products.
+ * <p>
+ * Every cache records statistics, which Actuator binds to Micrometer as {@code cache.gets},
+ * {@code cache.puts} and {@code cache.evictions} tagged with the cache name.
+ * <p>
+ * The manager is transaction-aware: puts and evictions issued inside a transaction are applied only
+ * once it commits, so a write-through cart never reaches the cache ahead of (or instead of) the database.
+ * Carts are kept in a {@link CartCache}, so concurrent write-throughs cannot leave an older version behind or bring
+ * a deleted cart back.
+ * <p>
+ * When a {@link SharedCache} and an {@link InvalidationBus} are available, the cart cache becomes a
+ * {@link TwoLevelCache} with the local one as its first level, so that several instances can serve the same users.
+ * {@code kickstarter.cache.shared.type=embedded} provides in-process stand-ins for both; a multi-node deployment
+ * declares beans backed by its own store and broadcast channel instead. The product catalog only changes when a
+ * node reloads its catalog files, which clears that node's {@code products} cache, so that cache stays single-level.
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final String CART_CACHE = "cart";
+    public static final String PRODUCTS_CACHE = "products";
+
+    @Value("${kickstarter.cache.cart.maximum-weight:100000}")
+    private long cartMaximumWeight;
+
+    @Value("${kickstarter.cache.cart.expire-after-access:30m}")
+    private Duration cartExpireAfterAccess;
+
+    @Value("${kickstarter.cache.products.maximum-size:10000}")
+    private long productsMaximumSize;
+
+    @Value("${kickstarter.cache.products.expire-after-access:1h}")
+    private Duration productsExpireAfterAccess;
+
+    @Value("${kickstarter.cache.products.refresh-after-write:10m}")
+    private Duration productsRefreshAfterWrite;
+
+    @Value("${kickstarter.cache.cart.local-expire-after-write:1m}")
+    private Duration cartLocalExpireAfterWrite;
+
+    @Value("${kickstarter.cache.shared.node-id:}")
+    private String nodeId;
+
+    @Value("${kickstarter.cache.default.maximum-size:1000}")
+    private long defaultMaximumSize;
+
+    @Value("${kickstarter.cache.default.expire-after-access:10m}")
+    private Duration defaultExpireAfterAccess;
+
+    @Bean
+    public CacheManager cacheManager(ProductRepository productRepository, ObjectProvider<SharedCache> sharedCache,
+                                     ObjectProvider<InvalidationBus> invalidationBus) {
+        SharedCache shared = sharedCache.getIfAvailable();
+        InvalidationBus bus = invalidationBus.getIfAvailable();
+        boolean twoLevel = shared != null && bus != null;
+        String node = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                if (!CART_CACHE.equals(name)) {
+                    return super.adaptCaffeineCache(name, cache);
+                }
+                var carts = new CartCache(name, cache, isAllowNullValues());
+                return twoLevel
+                        ? new TwoLevelCache(carts, shared, bus, node, CartCache::encode, CartCache::decode, CartCache::supersedes,
+                                Tombstone::of)
+                        : carts;
+            }
+        };
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(defaultMaximumSize)
+                .expireAfterAccess(defaultExpireAfterAccess)
+                .recordStats());
+
+        // A cart weighs one unit plus one per line, so the bound follows heap usage rather than the user count.
+        // Behind a shared level, local copies also expire soon after being written, in case an invalidation is lost.
+        var carts = Caffeine.newBuilder()
+                .maximumWeight(cartMaximumWeight)
+                .weigher((Object key, Object value) -> value instanceof Cart<?> cart && cart.getItems() != null
+                        ? 1 + cart.getItems().size()
+                        : 1)
+                .expireAfterAccess(cartExpireAfterAccess)
+                .recordStats();
+        if (twoLevel) {
+            carts.expireAfterWrite(cartLocalExpireAfterWrite);
+        }
+        cacheManager.registerCustomCache(CART_CACHE, carts.build());
+
+        // Entries are reloaded in the background once stale, so hot SKUs never block on a reload.
+        cacheManager.registerCustomCache(PRODUCTS_CACHE, Caffeine.newBuilder()
+                .maximumSize(productsMaximumSize)
+                .expireAfterAccess(productsExpireAfterAccess)
+                .refreshAfterWrite(productsRefreshAfterWrite)
+                .recordStats()
+                .build(sku -> productRepository.findBySku((String) sku).orElse(null)));
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "kickstarter.cache.shared.type", havingValue = "embedded")
+    public EmbeddedSharedCache embeddedSharedCache(@Value("${kickstarter.cache.shared.maximum-size:100000}") long maximumSize,
+                                                   @Value("${kickstarter.cache.shared.expire-after-write:30m}") Duration expireAfterWrite) {
+        return new EmbeddedSharedCache(maximumSize, expireAfterWrite);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "kickstarter.cache.shared.type", havingValue = "embedded")
+    public EmbeddedInvalidationBus embeddedInvalidationBus() {
+        return new EmbeddedInvalidationBus();
+    }
+
+    /**
+     * Publishes the first level of a {@link TwoLevelCache} like any Caffeine cache, plus {@code cache.shared.gets}
+     * tagged {@code result=hit|miss} for lookups that fell through to the shared level.
+     */
+    @Bean
+    public CacheMeterBinderProvider<TwoLevelCache> twoLevelCacheMeterBinderProvider() {
+        return (cache, tags) -> registry -> {
+            if (cache.getLocal() instanceof CaffeineCache local) {
+                new CaffeineCacheMetrics<>(local.getNativeCache(), cache.getName(), tags).bindTo(registry);
+            }
+            FunctionCounter.builder("cache.shared.gets", cache, TwoLevelCache::getSharedHits)
+                    .tags(tags).tag("cache", cache.getName()).tag("result", "hit").register(registry);
+            FunctionCounter.builder("cache.shared.gets", cache, TwoLevelCache::getSharedMisses)
+                    .tags(tags).tag("cache", cache.getName()).tag("result", "miss").register(registry);
+        };
+    }
+}
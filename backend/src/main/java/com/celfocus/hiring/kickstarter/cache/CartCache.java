@@ -0,0 +1,95 @@
+package com.celfocus.hiring.kickstarter.cache;
+
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.store.Carts;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The {@code cart} cache. Writes never replace a cart with an older state of it.
+ * <p>
+ * Concurrent changes to a cart commit in one order but may write their results through in another, so a plain
+ * put could leave the cache serving a version that has already been superseded. A put only replaces a cart of
+ * the same id with a higher version, or a cart that has since been deleted and created again (under a higher id).
+ * <p>
+ * For the same reason an evicted cart is not dropped but replaced by its {@link Tombstone}: with nothing left to
+ * compare against, a write-through that arrives after the eviction would bring the cart back.
+ */
+public class CartCache extends CaffeineCache {
+
+    public CartCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache, boolean allowNullValues) {
+        super(name, cache, allowNullValues);
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = super.lookup(key);
+        return value instanceof Tombstone ? null : value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (Tombstone.of(value) == null) {
+            super.put(key, value);
+            return;
+        }
+        getNativeCache().asMap().merge(key, value, (current, updated) -> supersedes(updated, current) ? updated : current);
+    }
+
+    @Override
+    public void evict(Object key) {
+        getNativeCache().asMap().computeIfPresent(key, (k, current) -> Tombstone.of(current));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return getNativeCache().asMap().computeIfPresent(key, (k, current) -> Tombstone.of(current)) != null;
+    }
+
+    /**
+     * @return whether {@code updated} is a later state than {@code current}, or either is not a cart with an id or
+     * a tombstone. A tombstone is later than the cart it was left by, and holds off that cart's version and below.
+     */
+    public static boolean supersedes(Object updated, Object current) {
+        Tombstone next = Tombstone.of(updated);
+        Tombstone previous = Tombstone.of(current);
+        if (next == null || previous == null) {
+            return true;
+        }
+        int byId = Long.compare(next.id(), previous.id());
+        if (byId != 0) {
+            return byId > 0;
+        }
+        int byVersion = Long.compare(next.version(), previous.version());
+        return byVersion > 0 || (byVersion == 0 && updated instanceof Tombstone && !(current instanceof Tombstone));
+    }
+
+    /**
+     * Encodes a cart or a tombstone for the shared level of a {@link TwoLevelCache}.
+     */
+    public static byte[] encode(Object value) {
+        return value instanceof Tombstone tombstone ? tombstone.encode() : Carts.encode((Cart<?>) value);
+    }
+
+    public static Object decode(byte[] bytes) {
+        return bytes.length == Tombstone.BYTES ? Tombstone.decode(bytes) : Carts.decode(bytes);
+    }
+}
@@ -0,0 +1,47 @@
+package com.celfocus.hiring.kickstarter.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link SharedCache} held in this JVM, for running and testing the two-level cache on a single machine.
+ * Entries expire like a network store's would, so it stays bounded.
+ */
+public class EmbeddedSharedCache implements SharedCache {
+
+    private final Cache<Entry, byte[]> entries;
+
+    public EmbeddedSharedCache(long maximumSize, Duration expireAfterWrite) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    @Override
+    public byte[] get(String cacheName, String key) {
+        return entries.getIfPresent(new Entry(cacheName, key));
+    }
+
+    @Override
+    public byte[] update(String cacheName, String key, UnaryOperator<byte[]> update) {
+        return entries.asMap().compute(new Entry(cacheName, key), (entry, current) -> update.apply(current));
+    }
+
+    @Override
+    public void evict(String cacheName, Collection<String> keys) {
+        entries.invalidateAll(keys.stream().map(key -> new Entry(cacheName, key)).toList());
+    }
+
+    @Override
+    public void clear(String cacheName) {
+        entries.asMap().keySet().removeIf(entry -> entry.cacheName().equals(cacheName));
+    }
+
+    private record Entry(String cacheName, String key) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.celfocus.hiring.kickstarter.cache;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Tells the other nodes which keys to drop from their local caches. Delivery is at-most-once: a node that misses
+ * a message keeps serving its copy until it expires, so local levels should expire reasonably soon.
+ * {@link EmbeddedInvalidationBus} is an in-process stand-in; a multi-node deployment provides a bean backed by a
+ * broadcast channel instead.
+ */
+public interface InvalidationBus {
+
+    void publish(Invalidation invalidation);
+
+    void subscribe(Consumer<Invalidation> listener);
+
+    /**
+     * @param origin    the publishing node, which ignores its own messages
+     * @param keys      the keys to drop; empty to drop the whole cache
+     */
+    record Invalidation(String origin, String cacheName, Collection<String> keys) {
+    }
+}
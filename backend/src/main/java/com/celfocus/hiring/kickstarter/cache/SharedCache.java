@@ -0,0 +1,30 @@
+package com.celfocus.hiring.kickstarter.cache;
+
+import java.util.Collection;
+import java.util.function.UnaryOperator;
+
+/**
+ * The shared second level of a {@link TwoLevelCache}: a store every node reads and writes, holding encoded values
+ * by cache name and key. {@link EmbeddedSharedCache} is an in-process stand-in; a multi-node deployment provides
+ * a bean backed by a network store instead.
+ */
+public interface SharedCache {
+
+    /**
+     * @return the encoded value, or null when absent
+     */
+    byte[] get(String cacheName, String key);
+
+    /**
+     * Replaces the value with {@code update} applied to the current one (null when absent, and to remove it),
+     * atomically with respect to other nodes: a network store would run it as a compare-and-set loop or a
+     * server-side script.
+     *
+     * @return the value now stored
+     */
+    byte[] update(String cacheName, String key, UnaryOperator<byte[]> update);
+
+    void evict(String cacheName, Collection<String> keys);
+
+    void clear(String cacheName);
+}
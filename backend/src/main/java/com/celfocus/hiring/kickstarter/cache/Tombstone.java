@@ -0,0 +1,37 @@
+package com.celfocus.hiring.kickstarter.cache;
+
+import com.celfocus.hiring.kickstarter.domain.Cart;
+
+import java.nio.ByteBuffer;
+
+/**
+ * What the {@code cart} cache keeps of a deleted or evicted cart: its id and last version. It reads as a miss, but
+ * refuses a late write of that cart at or below that version, so a deleted cart cannot come back from the cache.
+ */
+public record Tombstone(long id, long version) {
+
+    /**
+     * The encoded size, shorter than any encoded cart.
+     */
+    static final int BYTES = 2 * Long.BYTES;
+
+    /**
+     * @return the tombstone the value leaves behind, the value itself if it is one, or null if it is not a cart
+     * with an id
+     */
+    public static Tombstone of(Object value) {
+        if (value instanceof Tombstone tombstone) {
+            return tombstone;
+        }
+        return value instanceof Cart<?> cart && cart.getId() != null ? new Tombstone(cart.getId(), cart.getVersion()) : null;
+    }
+
+    byte[] encode() {
+        return ByteBuffer.allocate(BYTES).putLong(id).putLong(version).array();
+    }
+
+    static Tombstone decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new Tombstone(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,190 @@
+package com.celfocus.hiring.kickstarter.cache;
+
+import com.celfocus.hiring.kickstarter.util.Caches;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * A cache with a local first level in front of a {@link SharedCache} every node can read, for running several
+ * instances behind a load balancer without serving each other stale entries.
+ * <p>
+ * Reads try the local level, then the shared one, keeping what they find locally. Writes and evictions go to both
+ * levels and are announced on the {@link InvalidationBus}, so other nodes drop their local copy and read the new
+ * value from the shared level next time. A write only replaces a shared value that {@code supersedes} says is older,
+ * and the local level keeps whichever value won, so writes from different nodes that land out of order converge.
+ * An eviction leaves a {@link Tombstone} in the shared level, so a write that lands after it cannot bring an
+ * evicted value back either; tombstones read as misses.
+ * <p>
+ * Keys are shared by their {@code toString()}.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final Cache local;
+    private final SharedCache shared;
+    private final InvalidationBus bus;
+    private final String nodeId;
+    private final Function<Object, byte[]> encoder;
+    private final Function<byte[], Object> decoder;
+    private final BiPredicate<Object, Object> supersedes;
+    private final UnaryOperator<Object> tombstone;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder sharedMisses = new LongAdder();
+
+    /**
+     * @param supersedes whether a value written (first argument) may replace the one already shared (second)
+     * @param tombstone  the tombstone an evicted value leaves in the shared level, or null to leave nothing
+     */
+    public TwoLevelCache(Cache local, SharedCache shared, InvalidationBus bus, String nodeId,
+                         Function<Object, byte[]> encoder, Function<byte[], Object> decoder,
+                         BiPredicate<Object, Object> supersedes, UnaryOperator<Object> tombstone) {
+        super(false);
+        this.local = local;
+        this.shared = shared;
+        this.bus = bus;
+        this.nodeId = nodeId;
+        this.encoder = encoder;
+        this.decoder = decoder;
+        this.supersedes = supersedes;
+        this.tombstone = tombstone;
+        bus.subscribe(this::onInvalidation);
+    }
+
+    @Override
+    public String getName() {
+        return local.getName();
+    }
+
+    /**
+     * @return this cache, so that bulk helpers such as {@link Caches} go through both levels
+     */
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    public Cache getLocal() {
+        return local;
+    }
+
+    public long getSharedHits() {
+        return sharedHits.sum();
+    }
+
+    public long getSharedMisses() {
+        return sharedMisses.sum();
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        ValueWrapper cached = local.get(key);
+        if (cached != null) {
+            return cached.get();
+        }
+        long seen = invalidations.get();
+        byte[] bytes = shared.get(getName(), key.toString());
+        if (bytes == null) {
+            sharedMisses.increment();
+            return null;
+        }
+        sharedHits.increment();
+        Object value = decoder.apply(bytes);
+        keepLocally(key, value, seen);
+        return value instanceof Tombstone ? null : value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        long seen = invalidations.get();
+        byte[] encoded = encoder.apply(value);
+        byte[] stored = shared.update(getName(), key.toString(),
+                current -> current == null || supersedes.test(value, decoder.apply(current)) ? encoded : current);
+        keepLocally(key, stored == encoded ? value : decoder.apply(stored), seen);
+        publish(List.of(key.toString()));
+    }
+
+    @Override
+    public void evict(Object key) {
+        evictAll(List.of(key));
+    }
+
+    /**
+     * Evicts the keys from both levels, leaving tombstones where there are values, and tells the other nodes, in
+     * one message.
+     */
+    public void evictAll(Collection<?> keys) {
+        List<String> sharedKeys = keys.stream().map(Object::toString).toList();
+        for (String key : sharedKeys) {
+            shared.update(getName(), key, current -> {
+                Object left = current == null ? null : tombstone.apply(decoder.apply(current));
+                return left == null ? null : encoder.apply(left);
+            });
+        }
+        Caches.evictAll(local, keys);
+        publish(sharedKeys);
+    }
+
+    @Override
+    public void clear() {
+        shared.clear(getName());
+        local.clear();
+        publish(List.of());
+    }
+
+    /**
+     * Keeps a value read or written through the shared level locally, unless an invalidation arrived since
+     * {@code seen}: it may have been about this key, and the value may already be out of date.
+     */
+    private void keepLocally(Object key, Object value, long seen) {
+        local.put(key, value);
+        if (invalidations.get() != seen) {
+            local.evict(key);
+        }
+    }
+
+    private void publish(Collection<String> keys) {
+        bus.publish(new InvalidationBus.Invalidation(nodeId, getName(), keys));
+    }
+
+    private void onInvalidation(InvalidationBus.Invalidation invalidation) {
+        if (nodeId.equals(invalidation.origin()) || !getName().equals(invalidation.cacheName())) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        if (invalidation.keys().isEmpty()) {
+            local.clear();
+        } else {
+            Caches.evictAll(local, invalidation.keys());
+        }
+    }
+}
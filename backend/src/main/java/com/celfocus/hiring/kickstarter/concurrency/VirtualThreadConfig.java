@@ -0,0 +1,83 @@
+package com.celfocus.hiring.kickstarter.concurrency;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Extra wiring for the virtual-thread execution mode ({@code spring.threads.virtual.enabled=true}).
+ * <p>
+ * Spring Boot already moves Tomcat request handling, {@code @Scheduled} jobs and the application task
+ * executor onto virtual threads. What it does not do is protect the carrier threads: the H2 driver still
+ * blocks inside {@code synchronized} sections (e.g. while waiting for a row lock), which pins the carrier
+ * for the duration. The connection pool is therefore capped below the number of carriers, so virtual
+ * threads queue for a connection (an unpinned park) instead of all sitting pinned inside the driver.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    static BeanPostProcessor connectionPoolBound(@Value("${kickstarter.threads.virtual.max-connections:0}") int maxConnections) {
+        int bound = maxConnections(maxConnections);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // An unset pool size reads as -1 until the pool starts and then defaults to 10
+                HikariDataSource dataSource = pool(bean);
+                if (dataSource != null
+                        && (dataSource.getMaximumPoolSize() < 1 || dataSource.getMaximumPoolSize() > bound)) {
+                    logger.info("Capping connection pool [{}] at [{}] connections for virtual threads", beanName, bound);
+                    dataSource.setMaximumPoolSize(bound);
+                    if (dataSource.getMinimumIdle() > bound) {
+                        dataSource.setMinimumIdle(bound);
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * The Hikari pool behind a data source bean, also when another post-processor has already wrapped it.
+     */
+    private static HikariDataSource pool(Object bean) {
+        try {
+            return bean instanceof DataSource dataSource && dataSource.isWrapperFor(HikariDataSource.class)
+                    ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The most connections that may be open at once: {@code kickstarter.threads.virtual.max-connections} when set,
+     * otherwise one less than the carriers.
+     */
+    public static int maxConnections(int configured) {
+        return configured > 0 ? configured : defaultMaxConnections(carrierThreads());
+    }
+
+    /**
+     * Leaves one carrier free for request parsing and cache hits while the others may be pinned in JDBC.
+     */
+    static int defaultMaxConnections(int carrierThreads) {
+        return Math.max(1, carrierThreads - 1);
+    }
+
+    private static int carrierThreads() {
+        String parallelism = System.getProperty("jdk.virtualThreadScheduler.parallelism");
+        return parallelism != null ? Integer.parseInt(parallelism) : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -3,6 +3,7 @@ package com.celfocus.hiring.kickstarter.db.entity;
 import com.celfocus.hiring.kickstarter.domain.Cart;
 import jakarta.persistence.*;
 import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.OptimisticLock;
 
 import java.io.Serializable;
 import java.util.Date;
@@ -12,13 +13,17 @@ import java.util.List;
 @Table(name = "TB_CART", uniqueConstraints = @UniqueConstraint(name = "UK_CART_TO_USER", columnNames = "USER_ID"))
 public class CartEntity extends Cart<CartItemEntity> implements Serializable {
 
-    private Long id;
-
+    /**
+     * Ids come from a sequence handed out in blocks of 50 (pooled-lo), so new carts need no round trip per insert
+     * and can be written in JDBC batches, which IDENTITY columns rule out.
+     */
     @Id
     @Column(name = "ID")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+    @SequenceGenerator(name = "cart_seq", sequenceName = "TB_CART_SEQ", allocationSize = 50)
+    @Override
     public Long getId() {
-        return id;
+        return super.getId();
     }
 
     @NaturalId
@@ -28,20 +33,28 @@ public class CartEntity extends Cart<CartItemEntity> implements Serializable {
         return super.getUserId();
     }
 
+    /**
+     * Lines carry their own version. Changing them does not bump the cart's version implicitly: every cart change
+     * bumps it explicitly, in the statement that also checks it (see {@code JpaCartStore}).
+     */
     @OneToMany(mappedBy = "cart", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @OptimisticLock(excluded = true)
     @Override
     public List<CartItemEntity> getItems() {
         return super.getItems();
     }
 
+    @Version
+    @Column(name = "VERSION")
+    @Override
+    public long getVersion() {
+        return super.getVersion();
+    }
+
     @Column(name = "last_modified")
     @Temporal(TemporalType.TIMESTAMP)
     private Date lastModified;
 
-    public void setId(Long id) {
-        this.id = id;
-    }
-
     public Date getLastModified() {
         return lastModified;
     }
@@ -12,6 +12,7 @@ import java.math.BigDecimal;
 public class CartItemEntity extends CartItem implements Serializable {
 
     private CartEntity cart;
+    private long version;
 
     public CartItemEntity() {
     }
@@ -42,6 +43,16 @@ public class CartItemEntity extends CartItem implements Serializable {
         return super.getQuantity();
     }
 
+    @Version
+    @Column(name = "VERSION")
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @JoinColumn(name = "CART_ID", insertable = false, updatable = false)
     @ManyToOne(fetch = FetchType.LAZY)
     public CartEntity getCart() {
@@ -39,6 +39,14 @@ public class ProductEntity extends Product implements Serializable {
         super.setDescription(description);
     }
 
+    public String getCategory() {
+        return super.getCategory();
+    }
+
+    public void setCategory(String category) {
+        super.setCategory(category);
+    }
+
     public BigDecimal getPrice() {
         return super.getPrice();
     }
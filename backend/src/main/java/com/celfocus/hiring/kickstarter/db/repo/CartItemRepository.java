@@ -3,7 +3,64 @@ package com.celfocus.hiring.kickstarter.db.repo;
 import com.celfocus.hiring.kickstarter.db.entity.CartItemEntity;
 import com.celfocus.hiring.kickstarter.db.entity.CartItemPK;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 public interface CartItemRepository extends JpaRepository<CartItemEntity, CartItemPK> {
 
+    /**
+     * Adds {@code quantity} units of an item to the user's cart in a single statement, inserting the line
+     * if needed, and bumps the line's version. The line is left untouched when the resulting quantity would exceed
+     * {@code stock}.
+     *
+     * @return the line's new quantity, or empty when the stock limit was hit
+     */
+    @Query(value = """
+            SELECT QUANTITY FROM FINAL TABLE (
+                MERGE INTO TB_CART_ITEM I
+                USING (SELECT ID AS CART_ID FROM TB_CART WHERE USER_ID = :userId) S
+                ON I.CART_ID = S.CART_ID AND I.CART_ITEM_ID = :itemId
+                WHEN MATCHED AND I.QUANTITY + CAST(:quantity AS INT) <= CAST(:stock AS INT)
+                    THEN UPDATE SET I.QUANTITY = I.QUANTITY + CAST(:quantity AS INT), I.VERSION = I.VERSION + 1
+                WHEN NOT MATCHED AND CAST(:quantity AS INT) <= CAST(:stock AS INT)
+                    THEN INSERT (CART_ID, CART_ITEM_ID, PRICE, QUANTITY, VERSION)
+                    VALUES (S.CART_ID, :itemId, :price, CAST(:quantity AS INT), 0)
+            )
+            """, nativeQuery = true)
+    Optional<Integer> upsertItem(@Param("userId") String userId, @Param("itemId") String itemId,
+                                 @Param("price") BigDecimal price, @Param("quantity") int quantity,
+                                 @Param("stock") int stock);
+
+    /**
+     * Deletes the items of the given carts, skipping carts that were modified after {@code cutoff} in the meantime.
+     */
+    @Modifying
+    @Query("""
+            delete from CartItemEntity i where i.cartId in (
+                select c.id from CartEntity c where c.id in :cartIds and c.lastModified < :cutoff)
+            """)
+    int deleteExpired(@Param("cartIds") Collection<Long> cartIds, @Param("cutoff") Date cutoff);
+
+    @Query("select i.itemId as itemId, sum(i.quantity) as quantity from CartItemEntity i group by i.itemId")
+    List<ReservedStock> sumQuantityByItemId();
+
+    @Query("""
+            select i.itemId as itemId, sum(i.quantity) as quantity from CartItemEntity i
+            where i.cartId in (select c.id from CartEntity c where c.id in :cartIds and c.lastModified < :cutoff)
+            group by i.itemId
+            """)
+    List<ReservedStock> sumExpiredQuantityByItemId(@Param("cartIds") Collection<Long> cartIds, @Param("cutoff") Date cutoff);
+
+    interface ReservedStock {
+        String getItemId();
+
+        Long getQuantity();
+    }
 }
@@ -1,9 +1,14 @@
 package com.celfocus.hiring.kickstarter.db.repo;
 
 import com.celfocus.hiring.kickstarter.db.entity.CartEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -12,8 +17,104 @@ public interface CartRepository extends JpaRepository<CartEntity, Long> {
 
     Optional<CartEntity> findByUserId(String username);
 
+    /**
+     * Loads the cart together with its lines in a single query, for changes made through the entity.
+     */
+    @Query("select c from CartEntity c left join fetch c.items where c.userId = :userId")
+    Optional<CartEntity> findWithItemsByUserId(@Param("userId") String userId);
+
+    /**
+     * Read model of a cart: one row per line, or a single row with empty line columns when the cart has no lines.
+     * No entity is loaded, so nothing lazy or session-bound ends up in the result.
+     */
+    @Query("""
+            select c.id as cartId, c.userId as userId, c.version as version, c.lastModified as lastModified,
+                   i.itemId as itemId, i.price as price, i.quantity as quantity
+            from CartEntity c left join c.items i where c.userId = :userId
+            """)
+    List<CartLine> findCartLines(@Param("userId") String userId);
+
     List<CartEntity> findAllByLastModifiedBefore(Date date);
 
     @Modifying
     void deleteByUserId(String username);
+
+    @Query("select c.id as id, c.userId as userId from CartEntity c where c.lastModified < :cutoff order by c.id")
+    List<CartKey> findExpired(@Param("cutoff") Date cutoff, Pageable pageable);
+
+    /**
+     * Deletes the given carts, skipping any that were modified after {@code cutoff} in the meantime.
+     */
+    @Modifying
+    @Query("delete from CartEntity c where c.id in :ids and c.lastModified < :cutoff")
+    int deleteExpired(@Param("ids") Collection<Long> ids, @Param("cutoff") Date cutoff);
+
+    /**
+     * Creates the user's cart if it does not exist yet, otherwise touches its last-modified date and bumps its version.
+     * New ids are drawn from the same sequence as {@link CartEntity}, so they never collide with the blocks Hibernate holds.
+     *
+     * @return the cart's id and new version
+     */
+    @Query(value = """
+            SELECT ID AS cartId, VERSION AS version FROM FINAL TABLE (
+                MERGE INTO TB_CART C
+                USING (VALUES (CAST(:userId AS VARCHAR), CAST(:lastModified AS TIMESTAMP))) S(USER_ID, LAST_MODIFIED)
+                ON C.USER_ID = S.USER_ID
+                WHEN MATCHED THEN UPDATE SET C.LAST_MODIFIED = S.LAST_MODIFIED, C.VERSION = C.VERSION + 1
+                WHEN NOT MATCHED THEN INSERT (ID, USER_ID, VERSION, LAST_MODIFIED)
+                    VALUES (NEXT VALUE FOR TB_CART_SEQ, S.USER_ID, 1, S.LAST_MODIFIED)
+            )
+            """, nativeQuery = true)
+    CartRevision upsertCart(@Param("userId") String userId, @Param("lastModified") Date lastModified);
+
+    /**
+     * Touches the last-modified date of the user's cart and bumps its version. The row stays locked until the
+     * transaction ends, so changes made through the entity afterwards cannot interleave with another writer's.
+     *
+     * @return 1, or 0 when the user has no cart
+     */
+    @Modifying
+    @Query("update CartEntity c set c.version = c.version + 1, c.lastModified = :lastModified where c.userId = :userId")
+    int touchCart(@Param("userId") String userId, @Param("lastModified") Date lastModified);
+
+    /**
+     * Same as {@link #touchCart(String, Date)}, but only when the cart is still at the given id and version.
+     *
+     * @return 1, or 0 when the user has no cart or it has changed since
+     */
+    @Modifying
+    @Query("""
+            update CartEntity c set c.version = c.version + 1, c.lastModified = :lastModified
+            where c.userId = :userId and c.id = :cartId and c.version = :version
+            """)
+    int touchCart(@Param("userId") String userId, @Param("cartId") long cartId, @Param("version") long version,
+                  @Param("lastModified") Date lastModified);
+
+    interface CartLine {
+        Long getCartId();
+
+        String getUserId();
+
+        Long getVersion();
+
+        Date getLastModified();
+
+        String getItemId();
+
+        BigDecimal getPrice();
+
+        Integer getQuantity();
+    }
+
+    interface CartRevision {
+        Long getCartId();
+
+        Long getVersion();
+    }
+
+    interface CartKey {
+        Long getId();
+
+        String getUserId();
+    }
 }
@@ -0,0 +1,124 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-only, in-memory index over the product catalog, holding every product on the heap.
+ * <p>
+ * Every index is built once when the catalog is loaded and never mutated afterwards, so lookups
+ * need no locking and can be shared freely between request threads. SKU lookups hit a hash index
+ * holding pre-built {@link Optional}s, which keeps {@link #findBySku(String)} allocation-free.
+ */
+public final class InMemoryProductCatalog implements ProductCatalog {
+
+    private final List<ProductEntity> products;
+    private final Map<String, Optional<ProductEntity>> bySku;
+    private final Map<String, List<ProductEntity>> byCategory;
+    private final List<ProductEntity> byPrice;
+    private final BigDecimal[] prices;
+
+    public InMemoryProductCatalog(Collection<ProductEntity> source) {
+        Map<String, ProductEntity> uniqueBySku = new LinkedHashMap<>();
+        for (ProductEntity product : source) {
+            if (product.getSku() != null) {
+                uniqueBySku.putIfAbsent(product.getSku(), product);
+            }
+        }
+        this.products = List.copyOf(uniqueBySku.values());
+
+        Map<String, Optional<ProductEntity>> skuIndex = new HashMap<>();
+        Map<String, List<ProductEntity>> categoryIndex = new HashMap<>();
+        List<ProductEntity> priced = new ArrayList<>();
+        for (ProductEntity product : products) {
+            skuIndex.put(product.getSku(), Optional.of(product));
+            if (product.getCategory() != null) {
+                categoryIndex.computeIfAbsent(product.getCategory(), category -> new ArrayList<>()).add(product);
+            }
+            if (product.getPrice() != null) {
+                priced.add(product);
+            }
+        }
+        priced.sort(Comparator.comparing(ProductEntity::getPrice));
+
+        this.bySku = Map.copyOf(skuIndex);
+        Map<String, List<ProductEntity>> frozenCategories = new HashMap<>();
+        categoryIndex.forEach((category, items) -> frozenCategories.put(category, List.copyOf(items)));
+        this.byCategory = Map.copyOf(frozenCategories);
+        this.byPrice = List.copyOf(priced);
+        this.prices = priced.stream().map(ProductEntity::getPrice).toArray(BigDecimal[]::new);
+    }
+
+    @Override
+    public List<ProductEntity> findAll() {
+        return products;
+    }
+
+    @Override
+    public Optional<ProductEntity> findBySku(String sku) {
+        if (sku == null) {
+            return Optional.empty();
+        }
+        return bySku.getOrDefault(sku, Optional.empty());
+    }
+
+    @Override
+    public List<ProductEntity> findByCategory(String category) {
+        if (category == null) {
+            return List.of();
+        }
+        return byCategory.getOrDefault(category, List.of());
+    }
+
+    @Override
+    public List<ProductEntity> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice) {
+        int from = minPrice == null ? 0 : lowerBound(minPrice);
+        int to = maxPrice == null ? prices.length : upperBound(maxPrice);
+        if (from >= to) {
+            return List.of();
+        }
+        return byPrice.subList(from, to);
+    }
+
+    @Override
+    public int size() {
+        return products.size();
+    }
+
+    private int lowerBound(BigDecimal price) {
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid].compareTo(price) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(BigDecimal price) {
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid].compareTo(price) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,432 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+
+/**
+ * Product catalog read straight from a memory-mapped snapshot file, so that opening it costs no parsing and the
+ * catalog does not live on the heap: a {@link ProductEntity} is only decoded when a lookup returns it.
+ * <p>
+ * The file is written by {@link #write(ProductCatalog, long, Path)} and laid out as
+ * <ul>
+ *     <li>a header with the section offsets;</li>
+ *     <li>fixed-width product records sorted by SKU, each holding offset and length of its strings, the price
+ *     as a long scaled to the catalog's largest price scale, and the quantity;</li>
+ *     <li>record numbers in catalog order, then grouped by category, then ordered by price;</li>
+ *     <li>the category table, sorted by name, pointing into the category group;</li>
+ *     <li>the UTF-8 string table, where each category name is stored once.</li>
+ * </ul>
+ * SKU and category lookups are binary searches over the mapped bytes, and price ranges a binary search over
+ * the price order. Results keep the order of the catalog the snapshot was written from.
+ */
+public final class MappedProductCatalog implements ProductCatalog {
+
+    private static final int MAGIC = 0x4B434154;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+    private static final int RECORD_SIZE = 56;
+    private static final int CATEGORY_SIZE = 16;
+    private static final int SKU = 0;
+    private static final int NAME = 8;
+    private static final int DESCRIPTION = 16;
+    private static final int CATEGORY = 24;
+    private static final int IMAGE_URL = 32;
+    private static final int PRICE = 40;
+    private static final int PRICE_SCALE = 48;
+    private static final int QUANTITY = 52;
+    private static final long NO_PRICE = Long.MIN_VALUE;
+
+    private final ByteBuffer buffer;
+    private final long fingerprint;
+    private final int count;
+    private final int priceScale;
+    private final int priced;
+    private final int categories;
+    private final int records;
+    private final int listing;
+    private final int byCategory;
+    private final int byPrice;
+    private final int categoryTable;
+    private final int strings;
+
+    private MappedProductCatalog(ByteBuffer buffer) {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalStateException("Not a product catalog snapshot of version " + FORMAT_VERSION);
+        }
+        this.buffer = buffer;
+        this.fingerprint = buffer.getLong(8);
+        this.count = buffer.getInt(16);
+        this.priceScale = buffer.getInt(20);
+        this.priced = buffer.getInt(24);
+        this.categories = buffer.getInt(28);
+        this.records = HEADER_SIZE;
+        this.listing = records + count * RECORD_SIZE;
+        this.byCategory = listing + count * Integer.BYTES;
+        this.byPrice = buffer.getInt(32);
+        this.categoryTable = buffer.getInt(36);
+        this.strings = buffer.getInt(40);
+    }
+
+    public static MappedProductCatalog open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MappedProductCatalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the catalog as a snapshot file. Strings are encoded twice, once to size them and once to write them,
+     * rather than being held in memory between the two.
+     *
+     * @param fingerprint identifies what the catalog was built from, see {@link #fingerprint()}
+     */
+    public static void write(ProductCatalog catalog, long fingerprint, Path file) throws IOException {
+        List<ProductEntity> products = catalog.findAll();
+        int count = products.size();
+
+        byte[][] skus = new byte[count][];
+        Integer[] sorted = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            skus[i] = utf8(products.get(i).getSku());
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (a, b) -> Arrays.compareUnsigned(skus[a], skus[b]));
+        int[] recordOf = new int[count];
+        for (int record = 0; record < count; record++) {
+            recordOf[sorted[record]] = record;
+        }
+
+        Map<String, List<Integer>> members = new TreeMap<>(Comparator.comparing(MappedProductCatalog::utf8, Arrays::compareUnsigned));
+        List<Integer> priced = new ArrayList<>();
+        int categorized = 0;
+        int priceScale = 0;
+        for (int i = 0; i < count; i++) {
+            ProductEntity product = products.get(i);
+            if (product.getCategory() != null) {
+                members.computeIfAbsent(product.getCategory(), category -> new ArrayList<>()).add(recordOf[i]);
+                categorized++;
+            }
+            if (product.getPrice() != null) {
+                priced.add(i);
+                priceScale = Math.max(priceScale, product.getPrice().scale());
+            }
+        }
+        priced.sort(Comparator.comparing(i -> products.get(i).getPrice()));
+
+        long byPrice = HEADER_SIZE + (long) count * RECORD_SIZE + ((long) count + categorized) * Integer.BYTES;
+        long categoryTable = byPrice + (long) priced.size() * Integer.BYTES;
+        long strings = categoryTable + (long) members.size() * CATEGORY_SIZE;
+        long size = strings;
+        for (String category : members.keySet()) {
+            size += utf8Length(category);
+        }
+        for (ProductEntity product : products) {
+            size += utf8Length(product.getSku()) + utf8Length(product.getName()) + utf8Length(product.getDescription())
+                    + utf8Length(product.getimageUrl());
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Catalog of " + count + " products is too large for a snapshot");
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(count);
+            out.writeInt(priceScale);
+            out.writeInt(priced.size());
+            out.writeInt(members.size());
+            out.writeInt((int) byPrice);
+            out.writeInt((int) categoryTable);
+            out.writeInt((int) strings);
+            out.writeInt(0);
+
+            Map<String, Integer> categoryOffsets = new HashMap<>();
+            int offset = 0;
+            for (String category : members.keySet()) {
+                categoryOffsets.put(category, offset);
+                offset += utf8Length(category);
+            }
+            for (int record = 0; record < count; record++) {
+                ProductEntity product = products.get(sorted[record]);
+                offset = writeReference(out, product.getSku(), offset);
+                offset = writeReference(out, product.getName(), offset);
+                offset = writeReference(out, product.getDescription(), offset);
+                if (product.getCategory() == null) {
+                    writeReference(out, null, 0);
+                } else {
+                    out.writeInt(categoryOffsets.get(product.getCategory()));
+                    out.writeInt(utf8Length(product.getCategory()));
+                }
+                offset = writeReference(out, product.getimageUrl(), offset);
+                BigDecimal price = product.getPrice();
+                out.writeLong(price == null ? NO_PRICE : price.setScale(priceScale).unscaledValue().longValueExact());
+                out.writeInt(price == null ? 0 : price.scale());
+                out.writeInt(product.getQuantity());
+            }
+
+            for (int record : recordOf) {
+                out.writeInt(record);
+            }
+            for (List<Integer> group : members.values()) {
+                for (int record : group) {
+                    out.writeInt(record);
+                }
+            }
+            for (int i : priced) {
+                out.writeInt(recordOf[i]);
+            }
+
+            int start = 0;
+            for (Map.Entry<String, List<Integer>> category : members.entrySet()) {
+                out.writeInt(categoryOffsets.get(category.getKey()));
+                out.writeInt(utf8Length(category.getKey()));
+                out.writeInt(start);
+                out.writeInt(category.getValue().size());
+                start += category.getValue().size();
+            }
+
+            for (String category : members.keySet()) {
+                out.write(utf8(category));
+            }
+            for (int record = 0; record < count; record++) {
+                ProductEntity product = products.get(sorted[record]);
+                writeString(out, product.getSku());
+                writeString(out, product.getName());
+                writeString(out, product.getDescription());
+                writeString(out, product.getimageUrl());
+            }
+        }
+    }
+
+    /**
+     * @return the fingerprint the snapshot was written with, to tell whether it is still current
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public List<ProductEntity> findAll() {
+        return new Products(listing, count);
+    }
+
+    @Override
+    public Optional<ProductEntity> findBySku(String sku) {
+        if (sku == null) {
+            return Optional.empty();
+        }
+        byte[] key = utf8(sku);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int position = records + mid * RECORD_SIZE;
+            int comparison = compare(buffer.getInt(position + SKU), buffer.getInt(position + SKU + 4), key);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return Optional.of(product(mid));
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public List<ProductEntity> findByCategory(String category) {
+        if (category == null) {
+            return List.of();
+        }
+        byte[] key = utf8(category);
+        int low = 0;
+        int high = categories - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int position = categoryTable + mid * CATEGORY_SIZE;
+            int comparison = compare(buffer.getInt(position), buffer.getInt(position + 4), key);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return new Products(byCategory + buffer.getInt(position + 8) * Integer.BYTES, buffer.getInt(position + 12));
+            }
+        }
+        return List.of();
+    }
+
+    @Override
+    public List<ProductEntity> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice) {
+        int from = minPrice == null ? 0 : firstPricedAbove(scaled(minPrice, RoundingMode.CEILING) - 1);
+        int to = maxPrice == null ? priced : firstPricedAbove(scaled(maxPrice, RoundingMode.FLOOR));
+        if (from >= to) {
+            return List.of();
+        }
+        return new Products(byPrice + from * Integer.BYTES, to - from);
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the position in the price order of the first product priced above {@code price}, as a scaled long
+     */
+    private int firstPricedAbove(long price) {
+        int low = 0;
+        int high = priced;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int record = buffer.getInt(byPrice + mid * Integer.BYTES);
+            if (buffer.getLong(records + record * RECORD_SIZE + PRICE) <= price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long scaled(BigDecimal price, RoundingMode rounding) {
+        BigDecimal scaled = price.setScale(priceScale, rounding);
+        if (scaled.unscaledValue().bitLength() > 62) {
+            return scaled.signum() > 0 ? Long.MAX_VALUE - 1 : NO_PRICE + 2;
+        }
+        return scaled.unscaledValue().longValue();
+    }
+
+    private ProductEntity product(int record) {
+        int position = records + record * RECORD_SIZE;
+        ProductEntity product = new ProductEntity();
+        product.setSku(string(position + SKU));
+        product.setName(string(position + NAME));
+        product.setDescription(string(position + DESCRIPTION));
+        product.setCategory(string(position + CATEGORY));
+        product.setimageUrl(string(position + IMAGE_URL));
+        long price = buffer.getLong(position + PRICE);
+        if (price != NO_PRICE) {
+            product.setPrice(BigDecimal.valueOf(price, priceScale).setScale(buffer.getInt(position + PRICE_SCALE), RoundingMode.UNNECESSARY));
+        }
+        product.setQuantity(buffer.getInt(position + QUANTITY));
+        return product;
+    }
+
+    private String string(int reference) {
+        int offset = buffer.getInt(reference);
+        if (offset < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[buffer.getInt(reference + 4)];
+        buffer.get(strings + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares the string at {@code offset} in the string table with {@code key}, byte by byte.
+     */
+    private int compare(int offset, int length, byte[] key) {
+        int start = strings + offset;
+        for (int i = 0; i < Math.min(length, key.length); i++) {
+            int comparison = Byte.compareUnsigned(buffer.get(start + i), key[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private static int writeReference(DataOutputStream out, String value, int offset) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            out.writeInt(0);
+            return offset;
+        }
+        int length = utf8Length(value);
+        out.writeInt(offset);
+        out.writeInt(length);
+        return offset + length;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value != null) {
+            out.write(utf8(value));
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int utf8Length(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Products listed by a run of record numbers in the file, decoded as they are read.
+     */
+    private final class Products extends AbstractList<ProductEntity> implements RandomAccess {
+
+        private final int start;
+        private final int size;
+
+        private Products(int start, int size) {
+            this.start = start;
+            this.size = size;
+        }
+
+        @Override
+        public ProductEntity get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return product(buffer.getInt(start + index * Integer.BYTES));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-only view of the product catalog, safe to share between request threads.
+ * <p>
+ * A changed catalog is a new instance, put together with a {@link Builder}, possibly starting from the
+ * products of the current one.
+ */
+public interface ProductCatalog {
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    List<ProductEntity> findAll();
+
+    Optional<ProductEntity> findBySku(String sku);
+
+    List<ProductEntity> findByCategory(String category);
+
+    /**
+     * @return the products priced within {@code [minPrice, maxPrice]}, cheapest first; either bound may be null
+     */
+    List<ProductEntity> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice);
+
+    int size();
+
+    /**
+     * @return a builder holding this catalog's products, to apply changes to
+     */
+    default Builder toBuilder() {
+        Builder builder = new Builder();
+        findAll().forEach(builder::add);
+        return builder;
+    }
+
+    /**
+     * Collects products one at a time, e.g. while a catalog file is being streamed. Not thread-safe.
+     */
+    final class Builder {
+
+        private final Map<String, ProductEntity> bySku = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds the product unless one with the same SKU is already there, which keeps the first of any duplicates.
+         */
+        public Builder add(ProductEntity product) {
+            if (product.getSku() != null) {
+                bySku.putIfAbsent(product.getSku(), product);
+            }
+            return this;
+        }
+
+        /**
+         * Adds the product, replacing any with the same SKU.
+         */
+        public Builder put(ProductEntity product) {
+            if (product.getSku() != null) {
+                bySku.put(product.getSku(), product);
+            }
+            return this;
+        }
+
+        public Builder remove(String sku) {
+            bySku.remove(sku);
+            return this;
+        }
+
+        public ProductEntity get(String sku) {
+            return bySku.get(sku);
+        }
+
+        public ProductCatalog build() {
+            return new InMemoryProductCatalog(bySku.values());
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.util.ProductsLoader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Holds the current {@link ProductCatalog}, read from {@code kickstarter.catalog.location} and then every delta
+ * file in {@code kickstarter.catalog.deltas}, in file name order.
+ * <p>
+ * {@link #reload()} builds a new catalog when the files have changed and swaps it in with a single volatile write:
+ * lookups never wait for a reload and see either the old catalog or the new one, never a mix. When only new
+ * delta files have appeared after the ones already applied, they are applied on top of the current catalog;
+ * any other change re-reads everything. A file that cannot be read leaves the current catalog in place.
+ * <p>
+ * With a {@code kickstarter.catalog.snapshot} file, every catalog built is written to it in the binary format of
+ * {@link MappedProductCatalog} and served from the mapped file, off the heap. The snapshot records which catalog
+ * files it was built from, so a restart with unchanged files maps it directly instead of parsing any JSON.
+ */
+@Component
+public class ProductCatalogSource {
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogSource.class);
+
+    private final ObjectMapper objectMapper;
+    private final Resource location;
+    private final Path deltas;
+    private final Path snapshot;
+    private final ReentrantLock reloading = new ReentrantLock();
+    private volatile ProductCatalog catalog;
+    private Stamp locationStamp;
+    private NavigableMap<Path, Stamp> applied;
+
+    @Autowired
+    public ProductCatalogSource(ObjectMapper objectMapper,
+                                @Value("${kickstarter.catalog.location:classpath:products.json}") Resource location,
+                                @Value("${kickstarter.catalog.deltas:}") String deltas,
+                                @Value("${kickstarter.catalog.snapshot:}") String snapshot) {
+        this(objectMapper, location, deltas.isBlank() ? null : Path.of(deltas), snapshot.isBlank() ? null : Path.of(snapshot));
+    }
+
+    /**
+     * @param deltas   directory of delta files, or null for none
+     * @param snapshot binary snapshot file to serve the catalog from, or null to keep it on the heap
+     */
+    public ProductCatalogSource(ObjectMapper objectMapper, Resource location, Path deltas, Path snapshot) {
+        this.objectMapper = objectMapper;
+        this.location = location;
+        this.deltas = deltas;
+        this.snapshot = snapshot;
+        long start = System.nanoTime();
+        try {
+            applied = deltaFiles();
+            locationStamp = stamp(location);
+            catalog = snapshot == null ? read(null, applied) : openSnapshot();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading product catalog " + location, e);
+        }
+        logger.info("Product catalog loaded with [{}] products in [{}] ms", catalog.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public ProductCatalog current() {
+        return catalog;
+    }
+
+    /**
+     * Swaps in a new catalog if the catalog files have changed since the last load.
+     *
+     * @return the replaced and the new catalog, or empty if nothing changed or the files could not be read
+     */
+    public Optional<Change> reload() {
+        reloading.lock();
+        try {
+            long start = System.nanoTime();
+            Stamp currentStamp = stamp(location);
+            NavigableMap<Path, Stamp> found = deltaFiles();
+            boolean incremental = Objects.equals(currentStamp, locationStamp) && onlyAppended(found);
+            if (incremental && found.size() == applied.size()) {
+                return Optional.empty();
+            }
+            ProductCatalog previous = catalog;
+            ProductCatalog next = read(incremental ? previous : null, incremental ? appended(found) : found);
+            if (snapshot != null) {
+                next = writeSnapshot(next, fingerprint(currentStamp, found));
+            }
+            catalog = next;
+            locationStamp = currentStamp;
+            applied = found;
+            logger.info("Product catalog reloaded with [{}] products in [{}] ms ({})", next.size(),
+                    (System.nanoTime() - start) / 1_000_000, incremental ? "new deltas only" : "full");
+            return Optional.of(new Change(previous, next));
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not reload the product catalog, keeping the current one", e);
+            return Optional.empty();
+        } finally {
+            reloading.unlock();
+        }
+    }
+
+    /**
+     * @param base the catalog to apply the deltas to, or null to read the catalog location first
+     */
+    private ProductCatalog read(ProductCatalog base, Map<Path, Stamp> deltaFiles) throws IOException {
+        ProductCatalog.Builder builder;
+        if (base == null) {
+            builder = ProductCatalog.builder();
+            try (InputStream in = location.getInputStream()) {
+                ProductsLoader.readProducts(objectMapper, in, builder);
+            }
+        } else {
+            builder = base.toBuilder();
+        }
+        for (Path file : deltaFiles.keySet()) {
+            try (InputStream in = Files.newInputStream(file)) {
+                ProductsLoader.readDelta(objectMapper, in, builder);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Maps the snapshot if it was built from the current catalog files, or builds and writes a new one first.
+     */
+    private ProductCatalog openSnapshot() throws IOException {
+        long fingerprint = fingerprint(locationStamp, applied);
+        if (Files.exists(snapshot)) {
+            try {
+                MappedProductCatalog mapped = MappedProductCatalog.open(snapshot);
+                if (mapped.fingerprint() == fingerprint) {
+                    return mapped;
+                }
+            } catch (IllegalStateException e) {
+                logger.warn("Ignoring product catalog snapshot [{}]: {}", snapshot, e.getMessage());
+            }
+        }
+        return writeSnapshot(read(null, applied), fingerprint);
+    }
+
+    /**
+     * Writes the snapshot next to the current one and moves it into place, so a catalog still mapped from the
+     * old file keeps working.
+     */
+    private MappedProductCatalog writeSnapshot(ProductCatalog built, long fingerprint) throws IOException {
+        Path written = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        MappedProductCatalog.write(built, fingerprint, written);
+        Files.move(written, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return MappedProductCatalog.open(snapshot);
+    }
+
+    private long fingerprint(Stamp locationStamp, Map<Path, Stamp> deltaFiles) {
+        CRC32C crc = new CRC32C();
+        crc.update((location.getDescription() + locationStamp + deltaFiles).getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /**
+     * @return whether the applied delta files are unchanged and any new ones sort after them
+     */
+    private boolean onlyAppended(NavigableMap<Path, Stamp> found) {
+        if (!found.entrySet().containsAll(applied.entrySet())) {
+            return false;
+        }
+        return applied.isEmpty() || found.headMap(applied.lastKey(), true).size() == applied.size();
+    }
+
+    private Map<Path, Stamp> appended(NavigableMap<Path, Stamp> found) {
+        return applied.isEmpty() ? found : found.tailMap(applied.lastKey(), false);
+    }
+
+    private NavigableMap<Path, Stamp> deltaFiles() throws IOException {
+        NavigableMap<Path, Stamp> files = new TreeMap<>();
+        if (deltas == null || !Files.isDirectory(deltas)) {
+            return files;
+        }
+        try (Stream<Path> listing = Files.list(deltas)) {
+            for (Path file : (Iterable<Path>) listing::iterator) {
+                String name = file.getFileName().toString();
+                if (Files.isRegularFile(file) && (name.endsWith(".json") || name.endsWith(".ndjson"))) {
+                    files.put(file, stamp(file));
+                }
+            }
+        }
+        return files;
+    }
+
+    private static Stamp stamp(Resource resource) throws IOException {
+        return new Stamp(resource.lastModified(), resource.contentLength());
+    }
+
+    private static Stamp stamp(Path file) throws IOException {
+        return new Stamp(Files.getLastModifiedTime(file).toMillis(), Files.size(file));
+    }
+
+    public record Change(ProductCatalog previous, ProductCatalog current) {
+    }
+
+    private record Stamp(long lastModified, long size) {
+    }
+}
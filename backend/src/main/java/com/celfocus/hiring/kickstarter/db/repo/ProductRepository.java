@@ -3,11 +3,14 @@ package com.celfocus.hiring.kickstarter.db.repo;
 
 import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
 import com.celfocus.hiring.kickstarter.domain.Product;
-import com.celfocus.hiring.kickstarter.util.ProductsLoader;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.repository.Repository;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,28 +20,52 @@ public interface ProductRepository extends Repository<ProductEntity, String> {
 
     Optional<ProductEntity> findBySku(String sku);
 
+    List<ProductEntity> findBySkuIn(Collection<String> skus);
+
+    List<ProductEntity> findByCategory(String category);
+
+    List<ProductEntity> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice);
+
     static ProductRepository create(ObjectMapper objectMapper) {
-        return new ProductRepositoryImpl(objectMapper);
+        return new ProductRepositoryImpl(new ProductCatalogSource(objectMapper, new ClassPathResource("products.json"), "", ""));
     }
 }
 
 class ProductRepositoryImpl implements ProductRepository {
 
-    private final List<ProductEntity> products;
+    private final ProductCatalogSource source;
 
-    public ProductRepositoryImpl(@Autowired ObjectMapper objectMapper) {
-        products = ProductsLoader.loadProducts(objectMapper);
+    public ProductRepositoryImpl(@Autowired ProductCatalogSource source) {
+        this.source = source;
     }
 
     @Override
     public List<ProductEntity> findAll() {
-        return products;
+        return source.current().findAll();
     }
 
     @Override
     public Optional<ProductEntity> findBySku(String sku) {
-        return products.stream()
-                .filter(product -> product.getSku().equals(sku))
-                .findFirst();
+        return source.current().findBySku(sku);
+    }
+
+    @Override
+    public List<ProductEntity> findBySkuIn(Collection<String> skus) {
+        ProductCatalog catalog = source.current();
+        List<ProductEntity> found = new ArrayList<>(skus.size());
+        for (String sku : skus) {
+            catalog.findBySku(sku).ifPresent(found::add);
+        }
+        return found;
+    }
+
+    @Override
+    public List<ProductEntity> findByCategory(String category) {
+        return source.current().findByCategory(category);
+    }
+
+    @Override
+    public List<ProductEntity> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice) {
+        return source.current().findByPriceBetween(minPrice, maxPrice);
     }
 }
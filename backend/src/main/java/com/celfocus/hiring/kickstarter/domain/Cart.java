@@ -1,13 +1,23 @@
 package com.celfocus.hiring.kickstarter.domain;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 public class Cart<T extends CartItem> {
+    private Long id;
     private String userId;
-    private List<T> items;
+    private List<T> items = new ArrayList<>();
     private Date lastModified;
+    private long version;
 
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
 
     public List<T> getItems() {
         return items;
@@ -32,4 +42,16 @@ public class Cart<T extends CartItem> {
     public void setLastModified(Date lastModified) {
         this.lastModified = lastModified;
     }
+
+    /**
+     * Number of changes made to the cart since it was created, starting at 1. A cart that is deleted and created
+     * again starts over, under a new id.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
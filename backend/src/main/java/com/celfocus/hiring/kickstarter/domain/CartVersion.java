@@ -0,0 +1,20 @@
+package com.celfocus.hiring.kickstarter.domain;
+
+/**
+ * Identifies one state of a cart: its id, which changes when the cart is deleted and created again, and its
+ * version, which changes on every update. Used as the cart's ETag and to make changes conditional on it.
+ */
+public record CartVersion(long cartId, long version) {
+
+    public static CartVersion of(Cart<?> cart) {
+        return new CartVersion(cart.getId(), cart.getVersion());
+    }
+
+    public CartVersion next() {
+        return new CartVersion(cartId, version + 1);
+    }
+
+    public boolean matches(Cart<?> cart) {
+        return cart.getId() != null && cart.getId() == cartId && cart.getVersion() == version;
+    }
+}
@@ -13,6 +13,8 @@ public class Product {
 
     private String description;
 
+    private String category;
+
     private BigDecimal price;
 
     private String imageUrl;
@@ -78,6 +80,19 @@ public class Product {
         this.description = description;
     }
 
+    public Product category(String category) {
+        this.category = category;
+        return this;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
     public Product price(BigDecimal price) {
         this.price = price;
         return this;
@@ -1,11 +1,13 @@
 package com.celfocus.hiring.kickstarter.exception;
 
+import org.springframework.http.HttpStatus;
+
 /**
  * @author amjad.afifi
  */
-public class BadRequestException extends RuntimeException{
+public class BadRequestException extends BusinessException {
 
     public BadRequestException(String message){
-        super(message);
+        super(HttpStatus.BAD_REQUEST, message);
     }
 }
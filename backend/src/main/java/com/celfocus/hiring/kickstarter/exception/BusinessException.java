@@ -0,0 +1,24 @@
+package com.celfocus.hiring.kickstarter.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Base for exceptions that report an expected outcome, such as a missing cart or an item out of stock, rather
+ * than a fault.
+ * <p>
+ * They are thrown on normal traffic and always handled by {@link GlobalExceptionHandler}, so they do not capture
+ * a stack trace: creating one costs no more than any other small object.
+ */
+public abstract class BusinessException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    protected BusinessException(HttpStatus status, String message) {
+        super(message, null, false, false);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,13 @@
+package com.celfocus.hiring.kickstarter.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * A cart change that kept losing races with concurrent changes to the same cart, and ran out of retries.
+ */
+public class CartConflictException extends BusinessException {
+
+    public CartConflictException(String message) {
+        super(HttpStatus.CONFLICT, message);
+    }
+}
@@ -1,11 +1,13 @@
 package com.celfocus.hiring.kickstarter.exception;
 
+import org.springframework.http.HttpStatus;
+
 /**
  * @author amjad.afifi
  */
-public class CartNotFoundException extends RuntimeException{
+public class CartNotFoundException extends BusinessException {
 
     public CartNotFoundException(String message) {
-        super(message);
+        super(HttpStatus.NOT_FOUND, message);
     }
 }
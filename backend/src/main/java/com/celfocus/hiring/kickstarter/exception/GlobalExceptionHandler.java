@@ -1,16 +1,28 @@
 package com.celfocus.hiring.kickstarter.exception;
 
-import com.celfocus.hiring.kickstarter.api.CartAPIController;
+import com.celfocus.hiring.kickstarter.logging.LogSampler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
-import java.util.Map;
+import java.time.Duration;
 
 /**
+ * Maps business exceptions to RFC 7807 problem responses, through {@link ProblemResponses}.
+ * <p>
+ * These are expected outcomes (an unknown SKU, an empty cart, no stock left), not faults, so they are logged at
+ * WARN without a stack trace and sampled: each exception type is logged at most once per
+ * {@code kickstarter.logging.business-exception-sample-interval}, along with how many were left out.
+ * <p>
+ * A concurrent change that is still failing once {@code CartService} has used up its retries is reported the same
+ * way, as a {@link CartConflictException}; that includes two first items racing to create the same user's cart.
+ *
  * @author amjad.afifi
  */
 
@@ -18,39 +30,31 @@ import java.util.Map;
 public class GlobalExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
-    @ExceptionHandler(ItemNotFoundException.class)
-    public ResponseEntity<?> handleItemNotFound(ItemNotFoundException ex){
-        logger.error("ItemNotFound exception: {}", ex.getMessage(), ex);
-        return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                .body(Map.of("error", ex.getMessage()));
-    }
+    private final LogSampler sampler;
+    private final ProblemResponses problemResponses;
 
-    @ExceptionHandler(InsufficientStockException.class)
-    public ResponseEntity<?> handleInsufficientStock(InsufficientStockException ex){
-        logger.error("InsufficientStock exception: {}", ex.getMessage(), ex);
-        return ResponseEntity.status(HttpStatus.CONFLICT)
-                .body(Map.of("error", ex.getMessage()));
+    public GlobalExceptionHandler(@Value("${kickstarter.logging.business-exception-sample-interval:10s}") Duration sampleInterval,
+                                  ProblemResponses problemResponses) {
+        this.sampler = new LogSampler(sampleInterval);
+        this.problemResponses = problemResponses;
     }
 
-    @ExceptionHandler(CartNotFoundException.class)
-    public ResponseEntity<?> handleCartNotFound(CartNotFoundException ex){
-        logger.error("CartNotFound exception: {}", ex.getMessage(), ex);
-        return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                .body(Map.of("error", ex.getMessage()));
+    @ExceptionHandler(BusinessException.class)
+    public ResponseEntity<byte[]> handleBusinessException(BusinessException ex) {
+        log(ex);
+        return problemResponses.of(ex);
     }
 
-    @ExceptionHandler(ProductDoesNotExistException.class)
-    public ResponseEntity<?> handleProductDoesNotExist(ProductDoesNotExistException ex){
-        logger.error("ProductDoesNotExist exception: {}", ex.getMessage(), ex);
-        return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                .body(Map.of("error", ex.getMessage()));
+    @ExceptionHandler({ConcurrencyFailureException.class, DuplicateKeyException.class})
+    public ResponseEntity<byte[]> handleConcurrencyFailure(DataAccessException ex) {
+        return handleBusinessException(new CartConflictException("Cart is being changed concurrently, please retry"));
     }
 
-    @ExceptionHandler(BadRequestException.class)
-    public ResponseEntity<?> handleBadRequest(BadRequestException ex){
-        logger.error("BadRequest exception: {}", ex.getMessage(), ex);
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                .body(Map.of("error", ex.getMessage()));
+    private void log(BusinessException ex) {
+        String type = ex.getClass().getSimpleName();
+        long suppressed = sampler.sample(type);
+        if (suppressed >= 0) {
+            logger.warn("{}: {} ({} similar not logged)", type, ex.getMessage(), suppressed);
+        }
     }
-
 }
@@ -1,11 +1,13 @@
 package com.celfocus.hiring.kickstarter.exception;
 
+import org.springframework.http.HttpStatus;
+
 /**
  * @author amjad.afifi
  */
-public class InsufficientStockException extends RuntimeException{
+public class InsufficientStockException extends BusinessException {
 
     public InsufficientStockException(String message){
-        super(message);
+        super(HttpStatus.CONFLICT, message);
     }
 }
@@ -1,11 +1,13 @@
 package com.celfocus.hiring.kickstarter.exception;
 
+import org.springframework.http.HttpStatus;
+
 /**
  * @author amjad.afifi
  */
-public class ItemNotFoundException extends RuntimeException{
+public class ItemNotFoundException extends BusinessException {
 
     public ItemNotFoundException(String message){
-        super(message);
+        super(HttpStatus.NOT_FOUND, message);
     }
 }
@@ -0,0 +1,13 @@
+package com.celfocus.hiring.kickstarter.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * A conditional change whose {@code If-Match} no longer matches the cart, because it was changed in the meantime.
+ */
+public class PreconditionFailedException extends BusinessException {
+
+    public PreconditionFailedException(String message) {
+        super(HttpStatus.PRECONDITION_FAILED, message);
+    }
+}
@@ -0,0 +1,50 @@
+package com.celfocus.hiring.kickstarter.exception;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Renders {@link BusinessException}s as RFC 7807 problem responses ({@code application/problem+json}).
+ * <p>
+ * The same few outcomes repeat across requests, so each distinct exception type and message is serialized once
+ * and the bytes are reused. The body keeps an {@code error} member with the message, as responses had before.
+ */
+@Component
+public class ProblemResponses {
+
+    private static final int MAXIMUM_SIZE = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final Cache<Key, byte[]> rendered = Caffeine.newBuilder().maximumSize(MAXIMUM_SIZE).build();
+
+    public ProblemResponses(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public ResponseEntity<byte[]> of(BusinessException ex) {
+        byte[] body = rendered.get(new Key(ex.getClass(), ex.getMessage()), key -> render(ex));
+        return ResponseEntity.status(ex.getStatus())
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .body(body);
+    }
+
+    private byte[] render(BusinessException ex) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(ex.getStatus(), ex.getMessage());
+        problem.setTitle(ex.getStatus().getReasonPhrase());
+        problem.setProperty("error", ex.getMessage());
+        try {
+            return objectMapper.writeValueAsBytes(problem);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not render problem response", e);
+        }
+    }
+
+    private record Key(Class<?> type, String message) {
+    }
+}
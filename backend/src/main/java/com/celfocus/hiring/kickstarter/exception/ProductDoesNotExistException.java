@@ -1,11 +1,13 @@
 package com.celfocus.hiring.kickstarter.exception;
 
+import org.springframework.http.HttpStatus;
+
 /**
  * @author amjad.afifi
  */
-public class ProductDoesNotExistException extends RuntimeException{
+public class ProductDoesNotExistException extends BusinessException {
 
     public ProductDoesNotExistException(String message){
-        super(message);
+        super(HttpStatus.NOT_FOUND, message);
     }
 }
@@ -0,0 +1,44 @@
+package com.celfocus.hiring.kickstarter.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.AsyncAppenderBase;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+
+/**
+ * Publishes the queue depth of the asynchronous appenders set up in {@code logback-spring.xml}:
+ * {@code logging.async.queue.size} (events waiting to be written) and {@code logging.async.queue.remaining}
+ * (free slots), tagged with the appender name. A queue that stays near full means events are being dropped,
+ * or request threads are blocking on logging, depending on the appender's policy.
+ */
+@Component
+public class AsyncLoggingMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+        Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        for (Iterator<Appender<ILoggingEvent>> it = root.iteratorForAppenders(); it.hasNext(); ) {
+            if (it.next() instanceof AsyncAppenderBase<ILoggingEvent> appender) {
+                Gauge.builder("logging.async.queue.size", appender, AsyncAppenderBase::getNumberOfElementsInQueue)
+                        .tag("appender", appender.getName())
+                        .description("Log events waiting to be written")
+                        .register(registry);
+                Gauge.builder("logging.async.queue.remaining", appender, AsyncAppenderBase::getRemainingCapacity)
+                        .tag("appender", appender.getName())
+                        .description("Free slots in the log event queue")
+                        .register(registry);
+            }
+        }
+    }
+}
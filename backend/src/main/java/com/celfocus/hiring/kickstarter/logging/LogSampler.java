@@ -0,0 +1,48 @@
+package com.celfocus.hiring.kickstarter.logging;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate-limits a log statement per key, for outcomes that are expected and can happen on every request.
+ * <p>
+ * The first occurrence of a key in each interval is let through and the others are only counted; the count is
+ * handed to the next occurrence that is let through, so the log still shows how often it happened. Deciding
+ * costs a map lookup and a compare-and-set, without locking or allocating once a key has been seen.
+ * Keys should come from a small, fixed set such as exception types.
+ */
+public final class LogSampler {
+
+    private final long intervalNanos;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public LogSampler(Duration interval) {
+        this.intervalNanos = interval.toNanos();
+    }
+
+    /**
+     * @return the number of occurrences suppressed since the last one let through, or -1 if this occurrence
+     * should not be logged
+     */
+    public long sample(String key) {
+        Window window = windows.computeIfAbsent(key, k -> new Window(System.nanoTime()));
+        long now = System.nanoTime();
+        long next = window.next.get();
+        if (now - next >= 0 && window.next.compareAndSet(next, now + intervalNanos)) {
+            return window.suppressed.getAndSet(0);
+        }
+        window.suppressed.incrementAndGet();
+        return -1;
+    }
+
+    private static final class Window {
+        private final AtomicLong next;
+        private final AtomicLong suppressed = new AtomicLong();
+
+        private Window(long next) {
+            this.next = new AtomicLong(next);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.celfocus.hiring.kickstarter.metrics;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Enables {@link io.micrometer.core.annotation.Timed @Timed} on Spring beans.
+ * <p>
+ * Meters are scraped from {@code /actuator/prometheus}. The ones specific to this application are
+ * {@code cart.service} and {@code product.catalog} (per method), {@code jwt.verify}, {@code cart.cleanup.*},
+ * and the {@code cache.*} statistics of the Caffeine caches, from which hit ratios are derived.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedServices timedServices(MeterRegistry registry) {
+        return new TimedServices(new TimedAspect(registry));
+    }
+
+    /**
+     * Applies Micrometer's {@link TimedAspect} to classes annotated with {@code @Timed}, ahead of the caching and
+     * transaction proxies. {@code TimedAspect} itself cannot be ordered, and would otherwise run inside the cache
+     * interceptor, missing both cache hits and the values the {@code products} cache loads on its own.
+     */
+    @Aspect
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public static class TimedServices {
+
+        private final TimedAspect timedAspect;
+
+        public TimedServices(TimedAspect timedAspect) {
+            this.timedAspect = timedAspect;
+        }
+
+        @Around("@within(io.micrometer.core.annotation.Timed) && execution(public * *(..))")
+        public Object time(ProceedingJoinPoint pjp) throws Throwable {
+            return timedAspect.timedClass(pjp);
+        }
+    }
+}
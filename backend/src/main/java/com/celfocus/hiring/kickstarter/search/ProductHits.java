@@ -0,0 +1,15 @@
+package com.celfocus.hiring.kickstarter.search;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of search results.
+ *
+ * @param skus       the products on this page, best first
+ * @param total      how many products match the whole query
+ * @param categories how many products would match in each category, ignoring the query's own category
+ * @param nextCursor where the next page starts, or null on the last page
+ */
+public record ProductHits(List<String> skus, int total, Map<String, Integer> categories, String nextCursor) {
+}
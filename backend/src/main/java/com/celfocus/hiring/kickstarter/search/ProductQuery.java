@@ -0,0 +1,17 @@
+package com.celfocus.hiring.kickstarter.search;
+
+import java.math.BigDecimal;
+
+/**
+ * A product search. Every word of {@code text} must appear in the product's name or description; the other
+ * fields narrow the results down when set.
+ *
+ * @param text     words to look for, or null to list products in catalog order
+ * @param minPrice lowest price included, or null
+ * @param maxPrice highest price included, or null
+ * @param limit    the page size
+ * @param cursor   the {@link ProductHits#nextCursor()} of the previous page, or null for the first page
+ */
+public record ProductQuery(String text, String category, BigDecimal minPrice, BigDecimal maxPrice, int limit,
+                           String cursor) {
+}
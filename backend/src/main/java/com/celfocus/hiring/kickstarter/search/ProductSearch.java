@@ -0,0 +1,35 @@
+package com.celfocus.hiring.kickstarter.search;
+
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalog;
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalogSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps a {@link ProductSearchIndex} over the current catalog. The index is built when the catalog is loaded and
+ * rebuilt on every reload, then swapped in whole, so searches never wait for indexing.
+ */
+@Component
+public class ProductSearch {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearch.class);
+
+    private volatile ProductSearchIndex index;
+
+    @Autowired
+    public ProductSearch(ProductCatalogSource catalogSource) {
+        reindex(catalogSource.current());
+    }
+
+    public void reindex(ProductCatalog catalog) {
+        long start = System.nanoTime();
+        index = ProductSearchIndex.build(catalog);
+        logger.info("Product search index built over [{}] products in [{}] ms", index.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public ProductHits search(ProductQuery query) {
+        return index.search(query);
+    }
+}
@@ -0,0 +1,490 @@
+package com.celfocus.hiring.kickstarter.search;
+
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalog;
+import com.celfocus.hiring.kickstarter.exception.BadRequestException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Inverted index over product names and descriptions, built once per catalog and never changed afterwards, so
+ * searches need no locking.
+ * <p>
+ * Words are lower-cased and stripped of accents. Each word maps to the products containing it, in catalog order,
+ * with a BM25 weight in which a word in the name counts three times as much as one in the description. A search
+ * intersects the lists of its words, rarest first, then filters by price and category in the same pass that
+ * counts the category facets and keeps the best {@code limit} results in a bounded heap. Without words, results
+ * are listed in catalog order: a price range is looked up in the products sorted by price, and otherwise the
+ * facet counts come precomputed.
+ * <p>
+ * A word held by many products would make that pass visit all of them, so words held by at least
+ * {@value #BROAD} products also keep their products ordered by weight and their facet counts. A search for one
+ * such word, without a price range, reads its page off the head of that order and stops as soon as it can tell
+ * whether there is another page; its totals and facets are exact all the same. Several words, or a price range,
+ * still take the full pass, as the totals and facets then depend on every match.
+ * <p>
+ * Pages are addressed by a cursor holding the rank of the last result rather than an offset, so deep pages cost
+ * no more than the first. A cursor is only accepted by an index built from the same catalog content.
+ */
+public final class ProductSearchIndex {
+
+    private static final float NAME_WEIGHT = 3;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int BROAD = 1024;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Comparator<Hit> WORST_FIRST = Comparator.comparingDouble(Hit::score).thenComparing(Hit::doc, Comparator.reverseOrder());
+
+    private final long generation;
+    private final String[] skus;
+    private final double[] prices;
+    private final int[] categoryOf;
+    private final String[] categories;
+    private final int[][] categoryDocs;
+    private final int[] byPrice;
+    private final Map<String, Postings> postings;
+
+    private ProductSearchIndex(long generation, String[] skus, double[] prices, int[] categoryOf, String[] categories,
+                               int[][] categoryDocs, int[] byPrice, Map<String, Postings> postings) {
+        this.generation = generation;
+        this.skus = skus;
+        this.prices = prices;
+        this.categoryOf = categoryOf;
+        this.categories = categories;
+        this.categoryDocs = categoryDocs;
+        this.byPrice = byPrice;
+        this.postings = postings;
+    }
+
+    public static ProductSearchIndex build(ProductCatalog catalog) {
+        List<ProductEntity> products = catalog.findAll();
+        int count = products.size();
+        String[] skus = new String[count];
+        double[] prices = new double[count];
+        int[] categoryOf = new int[count];
+        float[] lengths = new float[count];
+        TreeSet<String> categoryNames = new TreeSet<>();
+        Map<String, PostingsBuilder> terms = new HashMap<>();
+        Map<String, Float> frequencies = new HashMap<>();
+        long generation = count;
+        double totalLength = 0;
+
+        for (int doc = 0; doc < count; doc++) {
+            ProductEntity product = products.get(doc);
+            skus[doc] = product.getSku();
+            prices[doc] = product.getPrice() == null ? Double.NaN : product.getPrice().doubleValue();
+            if (product.getCategory() != null) {
+                categoryNames.add(product.getCategory());
+            }
+            frequencies.clear();
+            for (String word : tokens(product.getName())) {
+                frequencies.merge(word, NAME_WEIGHT, Float::sum);
+            }
+            for (String word : tokens(product.getDescription())) {
+                frequencies.merge(word, 1f, Float::sum);
+            }
+            for (Map.Entry<String, Float> frequency : frequencies.entrySet()) {
+                terms.computeIfAbsent(frequency.getKey(), word -> new PostingsBuilder()).add(doc, frequency.getValue());
+                lengths[doc] += frequency.getValue();
+            }
+            totalLength += lengths[doc];
+            generation = 31 * generation + Objects.hash(product.getSku(), product.getName(), product.getDescription(),
+                    product.getCategory(), product.getPrice());
+        }
+
+        String[] categories = categoryNames.toArray(String[]::new);
+        int[] categorySizes = new int[categories.length];
+        for (int doc = 0; doc < count; doc++) {
+            String category = products.get(doc).getCategory();
+            categoryOf[doc] = category == null ? -1 : Arrays.binarySearch(categories, category);
+            if (categoryOf[doc] >= 0) {
+                categorySizes[categoryOf[doc]]++;
+            }
+        }
+        int[][] categoryDocs = new int[categories.length][];
+        for (int category = 0; category < categories.length; category++) {
+            categoryDocs[category] = new int[categorySizes[category]];
+            categorySizes[category] = 0;
+        }
+        for (int doc = 0; doc < count; doc++) {
+            if (categoryOf[doc] >= 0) {
+                categoryDocs[categoryOf[doc]][categorySizes[categoryOf[doc]]++] = doc;
+            }
+        }
+
+        int[] byPrice = IntStream.range(0, count).filter(doc -> !Double.isNaN(prices[doc])).boxed()
+                .sorted(Comparator.comparingDouble(doc -> prices[doc])).mapToInt(Integer::intValue).toArray();
+
+        float averageLength = count == 0 ? 1 : (float) (totalLength / count);
+        Map<String, Postings> postings = new HashMap<>(terms.size() * 4 / 3 + 1);
+        terms.forEach((word, builder) -> postings.put(word, builder.build(count, lengths, averageLength, categoryOf, categories.length)));
+        return new ProductSearchIndex(generation, skus, prices, categoryOf, categories, categoryDocs, byPrice, postings);
+    }
+
+    public int size() {
+        return skus.length;
+    }
+
+    public ProductHits search(ProductQuery query) {
+        Cursor after = query.cursor() == null ? null : Cursor.decode(query.cursor(), generation);
+        int category = query.category() == null ? -1 : Arrays.binarySearch(categories, query.category());
+        boolean byCategory = query.category() != null;
+        List<String> words = tokens(query.text());
+        boolean ranked = !words.isEmpty();
+        boolean byPrice = query.minPrice() != null || query.maxPrice() != null;
+        double minPrice = query.minPrice() == null ? Double.NEGATIVE_INFINITY : query.minPrice().doubleValue();
+        double maxPrice = query.maxPrice() == null ? Double.POSITIVE_INFINITY : query.maxPrice().doubleValue();
+        Postings broad = ranked && !byPrice ? broad(words) : null;
+
+        int[] facets;
+        int total;
+        int remaining;
+        List<Hit> page;
+        if (!ranked && !byPrice) {
+            facets = new int[categories.length];
+            for (int i = 0; i < categories.length; i++) {
+                facets[i] = categoryDocs[i].length;
+            }
+            int[] docs = byCategory ? (category < 0 ? new int[0] : categoryDocs[category]) : null;
+            total = docs == null ? skus.length : docs.length;
+            int from = after == null ? 0 : firstAfter(docs, after.doc());
+            remaining = Math.max(0, total - from);
+            page = new ArrayList<>(Math.min(query.limit(), remaining));
+            for (int i = from; i < total && page.size() < query.limit(); i++) {
+                page.add(new Hit(0, docs == null ? i : docs[i]));
+            }
+        } else if (broad != null) {
+            facets = broad.facets().clone();
+            total = byCategory ? (category < 0 ? 0 : facets[category]) : broad.docs().length;
+            int from = after == null ? 0 : firstRankedAfter(broad, after);
+            // only counted as far as it takes to tell whether there is another page
+            remaining = 0;
+            page = new ArrayList<>(Math.min(query.limit(), total));
+            for (int i = from; i < broad.byImpact().length && remaining <= query.limit() && total > 0; i++) {
+                int position = broad.byImpact()[i];
+                int doc = broad.docs()[position];
+                if (byCategory && categoryOf[doc] != category) {
+                    continue;
+                }
+                if (remaining++ < query.limit()) {
+                    page.add(new Hit(broad.score(position), doc));
+                }
+            }
+        } else {
+            Matches matches = ranked ? intersect(words) : priced(minPrice, maxPrice);
+            facets = new int[categories.length];
+            total = 0;
+            remaining = 0;
+            PriorityQueue<Hit> best = new PriorityQueue<>(WORST_FIRST);
+            for (int i = matches.from(); i < matches.to(); i++) {
+                int doc = matches.docs()[i];
+                if (ranked && byPrice && !(prices[doc] >= minPrice && prices[doc] <= maxPrice)) {
+                    continue;
+                }
+                if (categoryOf[doc] >= 0) {
+                    facets[categoryOf[doc]]++;
+                }
+                if (byCategory && (category < 0 || categoryOf[doc] != category)) {
+                    continue;
+                }
+                total++;
+                float score = matches.score(i);
+                if (after != null && !after.isBefore(score, doc)) {
+                    continue;
+                }
+                remaining++;
+                if (best.size() < query.limit()) {
+                    best.add(new Hit(score, doc));
+                } else if (score > best.peek().score() || (score == best.peek().score() && doc < best.peek().doc())) {
+                    best.poll();
+                    best.add(new Hit(score, doc));
+                }
+            }
+            page = new ArrayList<>(best);
+            page.sort(WORST_FIRST.reversed());
+        }
+
+        List<String> found = new ArrayList<>(page.size());
+        for (Hit hit : page) {
+            found.add(skus[hit.doc()]);
+        }
+        String nextCursor = remaining > page.size() && !page.isEmpty()
+                ? new Cursor(generation, page.getLast().score(), page.getLast().doc()).encode() : null;
+        return new ProductHits(found, total, facets(facets), nextCursor);
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits, with accents removed.
+     */
+    static List<String> tokens(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean inWord = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                words.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * @return the postings of the only word searched for, if it is held by at least {@value #BROAD} products
+     */
+    private Postings broad(List<String> words) {
+        if (new LinkedHashSet<>(words).size() != 1) {
+            return null;
+        }
+        Postings list = postings.get(words.getFirst());
+        return list == null || list.byImpact() == null ? null : list;
+    }
+
+    /**
+     * @return the position in weight order of the first product ranked after the cursor
+     */
+    private static int firstRankedAfter(Postings list, Cursor after) {
+        int low = 0;
+        int high = list.byImpact().length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int position = list.byImpact()[mid];
+            if (after.isBefore(list.score(position), list.docs()[position])) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the products holding every word, with their summed weights
+     */
+    private Matches intersect(List<String> words) {
+        List<Postings> lists = new ArrayList<>();
+        for (String word : new LinkedHashSet<>(words)) {
+            Postings list = postings.get(word);
+            if (list == null) {
+                return new Matches(new int[0], null, 0, 0, 0);
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.docs().length));
+        Postings rarest = lists.getFirst();
+        if (lists.size() == 1) {
+            return new Matches(rarest.docs(), rarest.weights(), rarest.idf(), 0, rarest.docs().length);
+        }
+        int size = rarest.docs().length;
+        int[] docs = rarest.docs().clone();
+        float[] scores = new float[size];
+        for (int i = 0; i < size; i++) {
+            scores[i] = rarest.idf() * rarest.weights()[i];
+        }
+        for (Postings list : lists.subList(1, lists.size())) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < size && from < list.docs().length; i++) {
+                from = seek(list.docs(), from, docs[i]);
+                if (from < list.docs().length && list.docs()[from] == docs[i]) {
+                    docs[kept] = docs[i];
+                    scores[kept++] = scores[i] + list.idf() * list.weights()[from];
+                }
+            }
+            size = kept;
+        }
+        return new Matches(docs, scores, 1, 0, size);
+    }
+
+    /**
+     * @return the products priced within {@code [minPrice, maxPrice]}, cheapest first
+     */
+    private Matches priced(double minPrice, double maxPrice) {
+        int from = firstPricedAbove(minPrice, true);
+        int to = firstPricedAbove(maxPrice, false);
+        return new Matches(byPrice, null, 0, from, Math.max(from, to));
+    }
+
+    /**
+     * @return the position in price order of the first product priced above {@code price}, or at it if inclusive
+     */
+    private int firstPricedAbove(double price, boolean inclusive) {
+        int low = 0;
+        int high = byPrice.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            double other = prices[byPrice[mid]];
+            if (other < price || (!inclusive && other == price)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the first position from {@code from} on holding {@code doc} or more, found by galloping ahead
+     */
+    private static int seek(int[] docs, int from, int doc) {
+        if (docs[from] >= doc) {
+            return from;
+        }
+        int step = 1;
+        int to = from;
+        while (to < docs.length && docs[to] < doc) {
+            from = to + 1;
+            to += step;
+            step <<= 1;
+        }
+        int found = Arrays.binarySearch(docs, from, Math.min(to + 1, docs.length), doc);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    /**
+     * @return the position of the first document after {@code doc}, in {@code docs} or in the whole catalog
+     */
+    private int firstAfter(int[] docs, int doc) {
+        if (docs == null) {
+            return doc + 1;
+        }
+        int found = Arrays.binarySearch(docs, doc);
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    private Map<String, Integer> facets(int[] counts) {
+        Integer[] order = new Integer[categories.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing((Integer category) -> counts[category]).reversed());
+        Map<String, Integer> facets = new LinkedHashMap<>();
+        for (int category : order) {
+            if (counts[category] > 0) {
+                facets.put(categories[category], counts[category]);
+            }
+        }
+        return facets;
+    }
+
+    private record Hit(float score, int doc) {
+    }
+
+    /**
+     * Candidate products, {@code docs[from]} to {@code docs[to - 1]}, with their scores as
+     * {@code scores[i] * scale}, or 0 when there are no scores.
+     */
+    private record Matches(int[] docs, float[] scores, float scale, int from, int to) {
+
+        private float score(int i) {
+            return scores == null ? 0 : scores[i] * scale;
+        }
+    }
+
+    /**
+     * The products holding one word, in catalog order, with the word's BM25 weight in each. For a broad word, also
+     * the positions of its products from best to worst score, and its products' count per category; null otherwise.
+     */
+    private record Postings(int[] docs, float[] weights, float idf, int[] byImpact, int[] facets) {
+
+        private float score(int i) {
+            return weights[i] * idf;
+        }
+    }
+
+    private static final class PostingsBuilder {
+
+        private int[] docs = new int[4];
+        private float[] frequencies = new float[4];
+        private int size;
+
+        private void add(int doc, float frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docs[size] = doc;
+            frequencies[size++] = frequency;
+        }
+
+        private Postings build(int count, float[] lengths, float averageLength, int[] categoryOf, int categories) {
+            float[] weights = new float[size];
+            for (int i = 0; i < size; i++) {
+                float frequency = frequencies[i];
+                weights[i] = frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * lengths[docs[i]] / averageLength));
+            }
+            float idf = (float) Math.log(1 + (count - size + 0.5) / (size + 0.5));
+            if (size < BROAD) {
+                return new Postings(Arrays.copyOf(docs, size), weights, idf, null, null);
+            }
+            // best score first and, among equal scores, catalog order, as the results are ranked; scores are
+            // positive, so their bits sort like them
+            long[] ranks = new long[size];
+            int[] facets = new int[categories];
+            for (int i = 0; i < size; i++) {
+                ranks[i] = (long) (Integer.MAX_VALUE - Float.floatToIntBits(weights[i] * idf)) << 32 | i;
+                if (categoryOf[docs[i]] >= 0) {
+                    facets[categoryOf[docs[i]]]++;
+                }
+            }
+            Arrays.sort(ranks);
+            int[] byImpact = new int[size];
+            for (int i = 0; i < size; i++) {
+                byImpact[i] = (int) ranks[i];
+            }
+            return new Postings(Arrays.copyOf(docs, size), weights, idf, byImpact, facets);
+        }
+    }
+
+    /**
+     * Rank of the last result of a page, and the index it came from.
+     */
+    private record Cursor(long generation, float score, int doc) {
+
+        private boolean isBefore(float otherScore, int otherDoc) {
+            return otherScore < score || (otherScore == score && otherDoc > doc);
+        }
+
+        private String encode() {
+            ByteBuffer bytes = ByteBuffer.allocate(16).putLong(generation).putFloat(score).putInt(doc);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.array());
+        }
+
+        private static Cursor decode(String cursor, long generation) {
+            Cursor decoded;
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+                decoded = new Cursor(bytes.getLong(), bytes.getFloat(), bytes.getInt());
+            } catch (IllegalArgumentException | BufferUnderflowException e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            if (decoded.generation() != generation) {
+                throw new BadRequestException("The catalog has changed since this cursor was issued, start the search again");
+            }
+            return decoded;
+        }
+    }
+}
@@ -31,12 +31,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         if (authenticationHeader != null && authenticationHeader.startsWith("Bearer ")) {
             String token = authenticationHeader.substring(7);
-            if(jwtService.validateToken(token)){
-                String username = jwtService.extractUsername(token);
-                var auth = new UsernamePasswordAuthenticationToken(username, null, Collections.emptyList());
+            jwtService.verify(token).ifPresent(verified -> {
+                var auth = new UsernamePasswordAuthenticationToken(verified.username(), null, Collections.emptyList());
                 auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(auth);
-            }
+            });
         }
 
         filterChain.doFilter(request, response);
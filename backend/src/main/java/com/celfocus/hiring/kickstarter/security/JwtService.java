@@ -1,22 +1,79 @@
 package com.celfocus.hiring.kickstarter.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Issues and verifies JWTs.
+ * <p>
+ * Verification uses a single shared {@link JwtParser} (which is thread-safe) and remembers verified tokens
+ * until they expire, so repeated requests carrying the same bearer skip parsing and signature checks.
+ * <p>
+ * Verification time is recorded as {@code jwt.verify}, tagged with its {@code result}: {@code cached},
+ * {@code verified} or {@code rejected}.
+ *
  * @author amjad.afifi
  */
 @Component
 public class JwtService {
 
+    private static final long VERIFIED_TOKENS_MAXIMUM_SIZE = 10_000;
+
     private final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
     private final long expiry = 1000 * 60 * 60;
+    private final JwtParser parser = Jwts.parser().setSigningKey(key).build();
+    private final Cache<String, VerifiedToken> verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(VERIFIED_TOKENS_MAXIMUM_SIZE)
+            .expireAfter(new Expiry<String, VerifiedToken>() {
+                @Override
+                public long expireAfterCreate(String token, VerifiedToken verified, long currentTime) {
+                    return Duration.between(Instant.now(), verified.expiresAt()).toNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(String token, VerifiedToken verified, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+    private final Timer cachedTimer;
+    private final Timer verifiedTimer;
+    private final Timer rejectedTimer;
+
+    public JwtService(MeterRegistry meterRegistry) {
+        this.cachedTimer = verifyTimer(meterRegistry, "cached");
+        this.verifiedTimer = verifyTimer(meterRegistry, "verified");
+        this.rejectedTimer = verifyTimer(meterRegistry, "rejected");
+    }
+
+    private static Timer verifyTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("jwt.verify")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
     public String generateToken(String username){
         return Jwts.builder()
@@ -27,18 +84,41 @@ public class JwtService {
                 .compact();
     }
 
+    /**
+     * Parses and verifies the token once, returning its subject and expiration together.
+     *
+     * @return the verified token, or empty if the token is malformed, tampered with or expired
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        long start = System.nanoTime();
+        VerifiedToken cached = verifiedTokens.getIfPresent(token);
+        if (cached != null) {
+            cachedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return Optional.of(cached);
+        }
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date expiration = claims.getExpiration();
+            var verified = new VerifiedToken(claims.getSubject(), expiration == null ? null : expiration.toInstant());
+            // Tokens without an expiration are not remembered, there would be no point at which to drop them.
+            if (verified.expiresAt() != null) {
+                verifiedTokens.put(token, verified);
+            }
+            verifiedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return Optional.of(verified);
+        } catch (JwtException | IllegalArgumentException e) {
+            rejectedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return Optional.empty();
+        }
+    }
+
     public String extractUsername(String token){
-        return Jwts.parser().setSigningKey(key).build()
-                .parseClaimsJws(token)
-                .getBody().getSubject();
+        return verify(token)
+                .map(VerifiedToken::username)
+                .orElseThrow(() -> new JwtException("Invalid token"));
     }
 
     public Boolean validateToken(String token){
-        try {
-            Jwts.parser().setSigningKey(key).build().parseClaimsJws(token);
-            return true;
-        }catch(JwtException e) {
-            return false;
-        }
+        return verify(token).isPresent();
     }
 }
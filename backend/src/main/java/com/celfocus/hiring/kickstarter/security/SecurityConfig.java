@@ -1,12 +1,20 @@
 package com.celfocus.hiring.kickstarter.security;
 
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 
 /**
  * @author amjad.afifi
@@ -15,9 +23,11 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final Environment environment;
 
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter){
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, Environment environment){
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.environment = environment;
     }
 
     @Bean
@@ -26,14 +36,31 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth ->
                         auth.requestMatchers("/auth/**").permitAll()
+                             .requestMatchers(prometheusOnManagementPort()).permitAll()
+                             .requestMatchers(HttpMethod.GET, "/api/v1/products/**").permitAll()
                              .requestMatchers("/cart/**").authenticated()
                              .anyRequest().authenticated()
                 )
+                .exceptionHandling(exceptions ->
+                        exceptions.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
 
     }
+
+    /**
+     * The Prometheus scrape endpoint, only when it is reached on a separate {@code management.server.port}. On the
+     * application port it needs a token like any other request. Without a separate port, Spring Boot reports the
+     * application port as the management port, so the port type is checked first.
+     */
+    private RequestMatcher prometheusOnManagementPort() {
+        RequestMatcher managementPort = request -> ManagementPortType.get(environment) == ManagementPortType.DIFFERENT
+                && request.getLocalPort() == environment.getProperty("local.management.port", Integer.class, -1);
+        String path = environment.getProperty("management.endpoints.web.base-path", "/actuator") + "/prometheus";
+        return new AndRequestMatcher(managementPort, AntPathRequestMatcher.antMatcher(HttpMethod.GET, path));
+    }
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
        return config.getAuthenticationManager();
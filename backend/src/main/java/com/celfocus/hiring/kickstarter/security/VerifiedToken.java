@@ -0,0 +1,12 @@
+package com.celfocus.hiring.kickstarter.security;
+
+import java.time.Instant;
+
+/**
+ * Outcome of a successful bearer token verification.
+ *
+ * @param username  the token subject
+ * @param expiresAt the token expiration, {@code null} if the token never expires
+ */
+public record VerifiedToken(String username, Instant expiresAt) {
+}
@@ -0,0 +1,267 @@
+package com.celfocus.hiring.kickstarter.shard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The cart shards: one database per shard, users assigned to them by a {@link ConsistentHashRing}.
+ * <p>
+ * Work for a user runs on their shard while holding a read lock on the user's lock stripe, until the surrounding
+ * transaction completes. {@link #addShard(DataSource) Adding a shard} moves the carts of the users the new shard
+ * takes over, one user at a time under the stripe's write lock, while the application keeps serving everyone
+ * else. Moved carts keep their id and version, so cached carts and ETags stay valid.
+ * <p>
+ * Every shard draws cart ids from its own range of the {@code TB_CART_SEQ} sequence, so a moved cart never
+ * collides with the carts already on its new shard.
+ */
+public class CartShards implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartShards.class);
+    private static final int LOCK_STRIPES = 256;
+    private static final long ID_RANGE = 1L << 40;
+
+    private final ShardRoutingDataSource dataSource;
+    private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[LOCK_STRIPES];
+    private final ReentrantReadWriteLock rebalancing = new ReentrantReadWriteLock();
+    private volatile ConsistentHashRing ring;
+    private volatile Migration migration;
+
+    public CartShards(List<DataSource> shards, int virtualNodes) {
+        this.dataSource = new ShardRoutingDataSource(shards);
+        this.ring = new ConsistentHashRing(shards.size(), virtualNodes);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * @return the data source that routes to the current {@link ShardContext}'s shard
+     */
+    public ShardRoutingDataSource dataSource() {
+        return dataSource;
+    }
+
+    public int count() {
+        return ring.size();
+    }
+
+    public int shardOf(String userId) {
+        Migration current = migration;
+        if (current != null && current.moved().contains(userId)) {
+            return current.shard();
+        }
+        return ring.shardFor(userId);
+    }
+
+    /**
+     * Runs the task on the user's shard. The user cannot be moved to another shard until the surrounding
+     * transaction, if any, completes.
+     */
+    public <T> T onShardOf(String userId, Supplier<T> task) {
+        return holding(stripe(userId).readLock(), () -> ShardContext.call(shardOf(userId), task));
+    }
+
+    /**
+     * Runs the task on the given shard, for work over all of its carts. Shards are not added meanwhile, until
+     * the surrounding transaction, if any, completes.
+     */
+    public <T> T onShard(int shard, Supplier<T> task) {
+        return holding(rebalancing.readLock(), () -> ShardContext.call(shard, task));
+    }
+
+    /**
+     * Copies the cart schema from shard 0, where Hibernate created it, to every shard that does not have it yet.
+     */
+    public void initializeSchema() {
+        for (int shard = 1; shard < count(); shard++) {
+            initializeSchema(shard, dataSource.shard(shard));
+        }
+    }
+
+    /**
+     * Adds a shard and moves onto it the carts of the users it takes over from the others. Users being moved
+     * wait for their move; everyone else is served throughout. Purges wait until the move is over.
+     *
+     * @return the new shard's number
+     */
+    public int addShard(DataSource shardDataSource) {
+        rebalancing.writeLock().lock();
+        try {
+            return rebalance(shardDataSource);
+        } finally {
+            rebalancing.writeLock().unlock();
+        }
+    }
+
+    private int rebalance(DataSource shardDataSource) {
+        ConsistentHashRing next = ring.withShard();
+        int shard = ring.size();
+        initializeSchema(shard, shardDataSource);
+        dataSource.addShard(shard, shardDataSource);
+
+        // Users the new shard takes over keep going to their old shard until their cart has been moved
+        Migration current = new Migration(shard, ConcurrentHashMap.newKeySet());
+        migration = current;
+        int moved = 0;
+        for (String userId : usersMovingTo(next, shard)) {
+            Lock lock = stripe(userId).writeLock();
+            lock.lock();
+            try {
+                moved += move(userId, ring.shardFor(userId), shard);
+                current.moved().add(userId);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Carts created on an old shard during the move are moved with every user held back, then the ring switches
+        for (ReentrantReadWriteLock stripe : locks) {
+            stripe.writeLock().lock();
+        }
+        try {
+            for (String userId : usersMovingTo(next, shard)) {
+                moved += move(userId, ring.shardFor(userId), shard);
+            }
+            ring = next;
+            migration = null;
+        } finally {
+            for (ReentrantReadWriteLock stripe : locks) {
+                stripe.writeLock().unlock();
+            }
+        }
+        logger.info("Added cart shard [{}] and moved [{}] carts onto it", shard, moved);
+        return shard;
+    }
+
+    /**
+     * @return the number of carts per shard
+     */
+    public Map<Integer, Long> cartCounts() {
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        for (int shard = 0; shard < count(); shard++) {
+            counts.put(shard, new JdbcTemplate(dataSource.shard(shard)).queryForObject("SELECT COUNT(*) FROM TB_CART", Long.class));
+        }
+        return counts;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (int shard = 0; shard < count(); shard++) {
+            if (dataSource.shard(shard) instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static <T> T holding(Lock lock, Supplier<T> task) {
+        lock.lock();
+        boolean deferred = false;
+        try {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        lock.unlock();
+                    }
+                });
+                deferred = true;
+            }
+            return task.get();
+        } finally {
+            if (!deferred) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private ReentrantReadWriteLock stripe(String userId) {
+        int hash = userId.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    private List<String> usersMovingTo(ConsistentHashRing next, int shard) {
+        List<String> users = new ArrayList<>();
+        for (int from = 0; from < shard; from++) {
+            new JdbcTemplate(dataSource.shard(from)).queryForList("SELECT USER_ID FROM TB_CART", String.class).stream()
+                    .filter(userId -> next.shardFor(userId) == shard)
+                    .forEach(users::add);
+        }
+        return users;
+    }
+
+    /**
+     * Copies the user's cart and lines to the target shard, then deletes them from the source, each in a transaction.
+     *
+     * @return 1, or 0 if the user no longer has a cart
+     */
+    private int move(String userId, int from, int to) {
+        var source = new JdbcTemplate(dataSource.shard(from));
+        var target = new JdbcTemplate(dataSource.shard(to));
+        List<Map<String, Object>> carts = source.queryForList("SELECT * FROM TB_CART WHERE USER_ID = ?", userId);
+        if (carts.isEmpty()) {
+            return 0;
+        }
+        Object cartId = carts.get(0).get("ID");
+        List<Map<String, Object>> lines = source.queryForList("SELECT * FROM TB_CART_ITEM WHERE CART_ID = ?", cartId);
+        inTransaction(dataSource.shard(to), () -> {
+            insert(target, "TB_CART", carts);
+            insert(target, "TB_CART_ITEM", lines);
+        });
+        inTransaction(dataSource.shard(from), () -> {
+            source.update("DELETE FROM TB_CART_ITEM WHERE CART_ID = ?", cartId);
+            source.update("DELETE FROM TB_CART WHERE ID = ?", cartId);
+        });
+        return 1;
+    }
+
+    private static void insert(JdbcTemplate target, String table, List<Map<String, Object>> rows) {
+        for (Map<String, Object> row : rows) {
+            String columns = String.join(", ", row.keySet());
+            String values = row.keySet().stream().map(column -> "?").collect(Collectors.joining(", "));
+            target.update("INSERT INTO " + table + " (" + columns + ") VALUES (" + values + ")", row.values().toArray());
+        }
+    }
+
+    private void initializeSchema(int shard, DataSource shardDataSource) {
+        var target = new JdbcTemplate(shardDataSource);
+        Integer existing = target.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'TB_CART'", Integer.class);
+        if (existing != null && existing > 0) {
+            return;
+        }
+        var statements = new JdbcTemplate(dataSource.shard(0)).queryForList("SCRIPT NODATA", String.class).stream()
+                .filter(statement -> !statement.startsWith("CREATE USER"))
+                .toList();
+        inTransaction(shardDataSource, () -> {
+            statements.forEach(target::execute);
+            target.execute("ALTER SEQUENCE TB_CART_SEQ RESTART WITH " + (shard * ID_RANGE + 1));
+        });
+        logger.info("Created cart schema on shard [{}] ({} statements)", shard, statements.size());
+    }
+
+    private static void inTransaction(DataSource dataSource, Runnable work) {
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status -> work.run());
+    }
+
+    private record Migration(int shard, Set<String> moved) {
+    }
+}
@@ -0,0 +1,41 @@
+package com.celfocus.hiring.kickstarter.shard;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * {@code /actuator/cartshards}: the number of carts per shard, and a write operation that adds a shard online.
+ * Not exposed over HTTP by default; add it to {@code management.endpoints.web.exposure.include} to use it.
+ */
+@Endpoint(id = "cartshards")
+public class CartShardsEndpoint {
+
+    private final CartShards cartShards;
+    private final IntFunction<? extends DataSource> shardDataSource;
+
+    public CartShardsEndpoint(CartShards cartShards, IntFunction<? extends DataSource> shardDataSource) {
+        this.cartShards = cartShards;
+        this.shardDataSource = shardDataSource;
+    }
+
+    @ReadOperation
+    public Map<Integer, Long> carts() {
+        return cartShards.cartCounts();
+    }
+
+    /**
+     * Adds the next shard, at the configured {@code shard-url}, and moves its users' carts onto it.
+     *
+     * @return the number of carts per shard afterwards
+     */
+    @WriteOperation
+    public synchronized Map<Integer, Long> addShard() {
+        cartShards.addShard(shardDataSource.apply(cartShards.count()));
+        return cartShards.cartCounts();
+    }
+}
@@ -0,0 +1,78 @@
+package com.celfocus.hiring.kickstarter.shard;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Maps keys to shards {@code 0..size-1} by consistent hashing. Every shard owns {@code virtualNodes} points on a
+ * 64-bit ring and a key belongs to the first point at or after its hash, so keys spread evenly and adding a shard
+ * only moves keys onto the new shard (about {@code 1 / (size + 1)} of them), never between existing ones.
+ * <p>
+ * Immutable; lookups are a binary search over a sorted array.
+ */
+public final class ConsistentHashRing {
+
+    private final int size;
+    private final int virtualNodes;
+    private final long[] points;
+    private final int[] owners;
+
+    public ConsistentHashRing(int size, int virtualNodes) {
+        if (size < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one shard and one virtual node per shard");
+        }
+        this.size = size;
+        this.virtualNodes = virtualNodes;
+        long[] unsorted = new long[size * virtualNodes];
+        for (int shard = 0; shard < size; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                unsorted[shard * virtualNodes + node] = hash(shard + "#" + node);
+            }
+        }
+        Integer[] order = IntStream.range(0, unsorted.length).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.comparingLong(i -> unsorted[i]));
+        this.points = new long[unsorted.length];
+        this.owners = new int[unsorted.length];
+        for (int i = 0; i < order.length; i++) {
+            points[i] = unsorted[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a ring with one more shard, numbered {@link #size()}
+     */
+    public ConsistentHashRing withShard() {
+        return new ConsistentHashRing(size + 1, virtualNodes);
+    }
+
+    public int shardFor(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * FNV-1a over the UTF-16 chars, then the MurmurHash3 finalizer to spread nearby keys across the ring.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,33 @@
+package com.celfocus.hiring.kickstarter.shard;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread's database work goes to, read by {@link ShardRoutingDataSource} when a transaction
+ * fetches its connection. Work outside any shard goes to shard 0.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T call(int shard, Supplier<T> task) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.celfocus.hiring.kickstarter.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out connections to the shard named by {@link ShardContext}, or to shard 0 outside any. Shards can be added
+ * while running.
+ * <p>
+ * A transaction fetches its connection once, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the connection is then fetched at the
+ * first statement, once the store has picked the shard, rather than when the transaction begins.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final Map<Object, Object> shards = new HashMap<>();
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            this.shards.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(Map.copyOf(this.shards));
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+        initialize();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+
+    public synchronized void addShard(int shard, DataSource dataSource) {
+        shards.put(shard, dataSource);
+        setTargetDataSources(Map.copyOf(shards));
+        initialize();
+    }
+
+    public synchronized DataSource shard(int shard) {
+        return (DataSource) shards.get(shard);
+    }
+}
@@ -0,0 +1,104 @@
+package com.celfocus.hiring.kickstarter.shard;
+
+import com.celfocus.hiring.kickstarter.concurrency.VirtualThreadConfig;
+import com.celfocus.hiring.kickstarter.store.JpaCartStore;
+import com.celfocus.hiring.kickstarter.store.ShardedCartStore;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Shards the {@code jpa} cart store over {@code kickstarter.cart.store.jpa.shards} databases, when there are more
+ * than one. Shard {@code n}'s URL is {@code shard-url} with {@code {shard}} replaced by {@code n}.
+ * <p>
+ * The application's data source then routes to the current user's shard, so the repositories and transactions
+ * are unchanged; Hibernate creates the schema on shard 0 and {@link CartShards} copies it to the others.
+ * <p>
+ * The shard pools are not beans, so {@link VirtualThreadConfig}'s pool cap does not reach them. In virtual-thread
+ * mode the cap is split across the shards here instead: a carrier pinned in the driver is pinned whichever shard
+ * it waits on, so it is the total across shards that has to stay below the carriers.
+ */
+@Configuration
+@ConditionalOnExpression("'${kickstarter.cart.store.type:jpa}' == 'jpa' and ${kickstarter.cart.store.jpa.shards:1} > 1")
+public class ShardingConfig {
+
+    @Value("${kickstarter.cart.store.jpa.shard-url:jdbc:h2:mem:cart-shard-{shard};DB_CLOSE_DELAY=-1}")
+    private String shardUrl;
+
+    @Value("${kickstarter.cart.store.jpa.shard-pool-size:10}")
+    private int poolSize;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${kickstarter.threads.virtual.max-connections:0}")
+    private int maxConnections;
+
+    private final List<HikariDataSource> pools = new CopyOnWriteArrayList<>();
+
+    @Bean
+    public CartShards cartShards(@Value("${kickstarter.cart.store.jpa.shards}") int shards,
+                                 @Value("${kickstarter.cart.store.jpa.shard-virtual-nodes:128}") int virtualNodes) {
+        List<DataSource> dataSources = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            dataSources.add(shardDataSource(shard));
+        }
+        return new CartShards(dataSources, virtualNodes);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(CartShards cartShards) {
+        return new LazyConnectionDataSourceProxy(cartShards.dataSource());
+    }
+
+    @Bean
+    @Primary
+    public ShardedCartStore shardedCartStore(JpaCartStore jpaCartStore, CartShards cartShards) {
+        cartShards.initializeSchema();
+        return new ShardedCartStore(jpaCartStore, cartShards);
+    }
+
+    @Bean
+    public CartShardsEndpoint cartShardsEndpoint(CartShards cartShards) {
+        return new CartShardsEndpoint(cartShards, this::shardDataSource);
+    }
+
+    private synchronized HikariDataSource shardDataSource(int shard) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("cart-shard-" + shard);
+        dataSource.setJdbcUrl(shardUrl.replace("{shard}", Integer.toString(shard)));
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(poolSize);
+        pools.add(dataSource);
+        if (virtualThreads) {
+            capPools();
+        }
+        return dataSource;
+    }
+
+    /**
+     * Shrinks every shard pool to its share of the virtual-thread connection bound; a shard added online takes its
+     * share from the running pools.
+     */
+    private void capPools() {
+        int perShard = Math.max(1, VirtualThreadConfig.maxConnections(maxConnections) / pools.size());
+        for (HikariDataSource pool : pools) {
+            if (pool.getMaximumPoolSize() > perShard) {
+                pool.setMaximumPoolSize(perShard);
+            }
+            if (pool.getMinimumIdle() > perShard) {
+                pool.setMinimumIdle(perShard);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compact binary form of a {@link StoredCart}, used for off-heap slots, snapshots and journal records.
+ * <p>
+ * Layout: id, version, last-modified millis, user id, line count, then per line the item id, quantity and price
+ * (scale followed by the unscaled value). Strings are length-prefixed UTF-8; absent values use sentinels.
+ * A {@link CartEvent} is its changed lines encoded as a cart, followed by the count and ids of removed lines.
+ */
+final class CartCodec {
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int NO_PRICE = Integer.MIN_VALUE;
+
+    private CartCodec() {
+    }
+
+    static byte[] encode(StoredCart stored) {
+        var cart = stored.cart();
+        byte[] userId = utf8(cart.getUserId());
+        int size = Long.BYTES * 3 + Integer.BYTES + userId.length + Integer.BYTES;
+        List<byte[]> itemIds = new ArrayList<>(cart.getItems().size());
+        List<byte[]> prices = new ArrayList<>(cart.getItems().size());
+        for (CartItem item : cart.getItems()) {
+            byte[] itemId = utf8(item.getItemId());
+            byte[] price = item.getPrice() == null ? new byte[0] : item.getPrice().unscaledValue().toByteArray();
+            itemIds.add(itemId);
+            prices.add(price);
+            size += Integer.BYTES + itemId.length + Integer.BYTES + Integer.BYTES + Integer.BYTES + price.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(stored.id());
+        buffer.putLong(cart.getVersion());
+        buffer.putLong(cart.getLastModified() == null ? NO_DATE : cart.getLastModified().getTime());
+        putBytes(buffer, userId);
+        buffer.putInt(cart.getItems().size());
+        for (int i = 0; i < cart.getItems().size(); i++) {
+            CartItem item = cart.getItems().get(i);
+            putBytes(buffer, itemIds.get(i));
+            buffer.putInt(item.getQuantity());
+            buffer.putInt(item.getPrice() == null ? NO_PRICE : item.getPrice().scale());
+            putBytes(buffer, prices.get(i));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Reads a cart from the buffer's position onwards, advancing the position past it.
+     */
+    static StoredCart decode(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        long version = buffer.getLong();
+        long lastModified = buffer.getLong();
+        String userId = getString(buffer);
+        int count = buffer.getInt();
+        List<CartItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String itemId = getString(buffer);
+            int quantity = buffer.getInt();
+            int scale = buffer.getInt();
+            byte[] unscaled = getBytes(buffer);
+            BigDecimal price = scale == NO_PRICE ? null : new BigDecimal(new BigInteger(unscaled), scale);
+            items.add(Carts.newItem(id, itemId, price, quantity));
+        }
+        return new StoredCart(id, Carts.newCart(id, userId, version, items, lastModified == NO_DATE ? null : new Date(lastModified)));
+    }
+
+    static byte[] encode(CartEvent event) {
+        byte[] changes = encode(event.changes());
+        List<byte[]> removed = event.removed().stream().map(CartCodec::utf8).toList();
+        int size = changes.length + Integer.BYTES;
+        for (byte[] itemId : removed) {
+            size += Integer.BYTES + itemId.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(changes);
+        buffer.putInt(removed.size());
+        removed.forEach(itemId -> putBytes(buffer, itemId));
+        return buffer.array();
+    }
+
+    static CartEvent decodeEvent(ByteBuffer buffer) {
+        StoredCart changes = decode(buffer);
+        int count = buffer.getInt();
+        List<String> removed = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            removed.add(getString(buffer));
+        }
+        return new CartEvent(changes, removed);
+    }
+
+    static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    static String getString(ByteBuffer buffer) {
+        return new String(getBytes(buffer), StandardCharsets.UTF_8);
+    }
+}
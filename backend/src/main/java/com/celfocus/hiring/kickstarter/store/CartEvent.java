@@ -0,0 +1,74 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * One change to a cart, as logged by {@link CartJournal}: the lines that were added or changed, with their new
+ * quantity and price, and the item ids of the lines that were removed.
+ * <p>
+ * Events carry absolute line values rather than deltas, so applying an event twice, or applying it to a snapshot
+ * that already includes it, gives the same cart.
+ *
+ * @param changes the cart's id, user, new version and last-modified date, and the changed lines
+ * @param removed the item ids of the removed lines
+ */
+record CartEvent(StoredCart changes, List<String> removed) {
+
+    /**
+     * @param before the cart before the change, or null when it is being created
+     */
+    static CartEvent between(StoredCart before, StoredCart after) {
+        Map<String, CartItem> previous = new HashMap<>();
+        if (before != null) {
+            before.cart().getItems().forEach(item -> previous.put(item.getItemId(), item));
+        }
+        List<CartItem> changed = new ArrayList<>();
+        Set<String> kept = new HashSet<>();
+        for (CartItem item : after.cart().getItems()) {
+            kept.add(item.getItemId());
+            var old = previous.get(item.getItemId());
+            if (old == null || !old.getQuantity().equals(item.getQuantity()) || !Objects.equals(old.getPrice(), item.getPrice())) {
+                changed.add(item);
+            }
+        }
+        List<String> removed = previous.keySet().stream().filter(itemId -> !kept.contains(itemId)).toList();
+        var cart = after.cart();
+        var changes = Carts.newCart(after.id(), cart.getUserId(), cart.getVersion(), changed, cart.getLastModified());
+        return new CartEvent(new StoredCart(after.id(), changes), removed);
+    }
+
+    String userId() {
+        return changes.cart().getUserId();
+    }
+
+    /**
+     * @param current the cart the event applies to, or null when the user has none
+     */
+    StoredCart applyTo(StoredCart current) {
+        List<CartItem> items = new ArrayList<>(current == null ? List.of() : current.cart().getItems());
+        items.removeIf(item -> removed.contains(item.getItemId()));
+        for (CartItem change : changes.cart().getItems()) {
+            int line = -1;
+            for (int i = 0; i < items.size() && line < 0; i++) {
+                if (items.get(i).getItemId().equals(change.getItemId())) {
+                    line = i;
+                }
+            }
+            if (line < 0) {
+                items.add(change);
+            } else {
+                items.set(line, change);
+            }
+        }
+        return new StoredCart(changes.id(), Carts.newCart(changes.id(), userId(), changes.cart().getVersion(), items,
+                changes.cart().getLastModified()));
+    }
+}
@@ -0,0 +1,340 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Append-only log of cart events that lets {@link InMemoryCartStore} rebuild its state after a restart.
+ * <p>
+ * The log is a directory of numbered segments of a fixed size. Each segment is memory-mapped, so an append is a
+ * copy into the page cache; when a record does not fit, the journal moves on to the next segment. Every record
+ * is {@code length, type, payload, crc}: a {@link CartEvent} or a cart being cleared. A record cut short by a
+ * crash fails its checksum and ends the replay of its segment; the journal always starts a fresh segment when
+ * it is opened, so later segments are never written after a torn record.
+ * <p>
+ * Snapshots bound the replay: a snapshot holds every cart as of the start of a segment, so recovery loads the
+ * newest snapshot and replays only the segments from that one on. Older segments are deleted once a snapshot
+ * covers them, unless they are kept as an audit trail.
+ * <p>
+ * With {@code fsync}, {@link #await} only returns once a record is on disk. Writers that wait at the same time
+ * share a single flush (group commit), so the cost of a flush is spread over every change it covers.
+ */
+public class CartJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartJournal.class);
+    private static final byte CHANGE = 1;
+    private static final byte CLEAR = 2;
+    private static final int HEADER = Integer.BYTES + 1;
+    private static final int SNAPSHOT_MAGIC = 0x43415254;
+    private static final String SEGMENT = "segment-";
+    private static final String SNAPSHOT = "snapshot-";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final boolean keepSegments;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private long segment;
+    private MappedByteBuffer buffer;
+    private volatile long written;
+    private volatile long durable;
+
+    /**
+     * @param segmentSize  the size of each segment file, which bounds the size of a single record
+     * @param fsync        make {@link #await} wait until records are on disk; otherwise the OS writes the mapped
+     *                     pages back on its own schedule, which survives a process crash but not a power loss
+     * @param keepSegments keep segments that a snapshot already covers instead of deleting them
+     */
+    public CartJournal(Path directory, int segmentSize, boolean fsync, boolean keepSegments) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        this.keepSegments = keepSegments;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create cart journal directory " + directory, e);
+        }
+    }
+
+    /**
+     * Feeds the newest snapshot, then every intact record written since, to the callbacks in write order, and
+     * opens a new segment for appending.
+     */
+    void recover(Consumer<StoredCart> onSnapshot, Consumer<CartEvent> onChange, Consumer<String> onClear) {
+        appendLock.lock();
+        try {
+            OptionalLong snapshot = last(SNAPSHOT);
+            long first = snapshot.orElse(0);
+            if (snapshot.isPresent()) {
+                int carts = readSnapshot(file(SNAPSHOT, first), onSnapshot);
+                logger.info("Loaded [{}] carts from cart snapshot [{}]", carts, first);
+            }
+            int records = 0;
+            List<Long> segments = numbers(SEGMENT).filter(number -> number >= first).sorted().toList();
+            for (long number : segments) {
+                records += replaySegment(number, onChange, onClear);
+            }
+            segment = Math.max(first, last(SEGMENT).orElse(0));
+            openSegment();
+            logger.info("Replayed [{}] records from [{}] cart journal segments in [{}]", records, segments.size(), directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not recover cart journal " + directory, e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return the sequence number to {@link #await} before acknowledging the change
+     */
+    long appendChange(CartEvent event) {
+        return append(CHANGE, CartCodec.encode(event));
+    }
+
+    long appendClear(String userId) {
+        byte[] userIdBytes = CartCodec.utf8(userId);
+        ByteBuffer payload = ByteBuffer.allocate(Integer.BYTES + userIdBytes.length);
+        CartCodec.putBytes(payload, userIdBytes);
+        return append(CLEAR, payload.array());
+    }
+
+    /**
+     * Blocks until the record with the given sequence number is durable. Callers should hold as few locks as they
+     * can, so that concurrent writers can join the same flush.
+     */
+    void await(long sequence) {
+        if (!fsync || durable >= sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durable >= sequence) {
+                return;
+            }
+            MappedByteBuffer target;
+            long upTo;
+            appendLock.lock();
+            try {
+                target = buffer;
+                upTo = written;
+            } finally {
+                appendLock.unlock();
+            }
+            target.force();
+            durable = upTo;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Starts a new segment, so that a snapshot of the current state can replace all earlier ones.
+     *
+     * @return the number of the new segment
+     */
+    long rotate() {
+        appendLock.lock();
+        try {
+            nextSegment();
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rotate cart journal " + directory, e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the carts as the snapshot from which segment {@code from} onwards is replayed, then deletes the
+     * snapshots and segments it supersedes. The snapshot only becomes visible once it is complete and on disk.
+     */
+    void writeSnapshot(long from, Stream<StoredCart> carts) {
+        Path target = file(SNAPSHOT, from);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        int count = 0;
+        try {
+            var checked = new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)), new CRC32C());
+            try (var out = new DataOutputStream(checked)) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(from);
+                for (Iterator<StoredCart> it = carts.iterator(); it.hasNext(); count++) {
+                    byte[] cart = CartCodec.encode(it.next());
+                    out.writeInt(cart.length);
+                    out.write(cart);
+                }
+                out.writeInt(-1);
+                out.writeInt((int) checked.getChecksum().getValue());
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+
+            for (long number : numbers(SNAPSHOT).filter(number -> number != from).toList()) {
+                Files.deleteIfExists(file(SNAPSHOT, number));
+            }
+            if (!keepSegments) {
+                for (long number : numbers(SEGMENT).filter(number -> number < from).toList()) {
+                    Files.deleteIfExists(file(SEGMENT, number));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write cart snapshot " + target, e);
+        }
+        logger.info("Wrote cart snapshot [{}] with [{}] carts", from, count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            if (buffer != null) {
+                buffer.force();
+                durable = written;
+                buffer = null;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private long append(byte type, byte[] payload) {
+        int size = HEADER + payload.length + Integer.BYTES;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Cart journal record of " + size + " bytes is larger than a segment");
+        }
+        int checksum = checksum(type, ByteBuffer.wrap(payload));
+        appendLock.lock();
+        try {
+            if (buffer == null) {
+                throw new IllegalStateException("Cart journal " + directory + " is not open");
+            }
+            if (buffer.remaining() < size) {
+                nextSegment();
+            }
+            buffer.putInt(payload.length).put(type).put(payload).putInt(checksum);
+            written += size;
+            return written;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to cart journal " + directory, e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void nextSegment() throws IOException {
+        if (fsync) {
+            buffer.force();
+            durable = written;
+        }
+        openSegment();
+    }
+
+    private void openSegment() throws IOException {
+        segment++;
+        try (FileChannel channel = FileChannel.open(file(SEGMENT, segment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private int replaySegment(long number, Consumer<CartEvent> onChange, Consumer<String> onClear) throws IOException {
+        Path file = file(SEGMENT, number);
+        ByteBuffer records;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int count = 0;
+        while (records.remaining() >= HEADER) {
+            int length = records.getInt();
+            byte type = records.get();
+            if (length <= 0 || records.remaining() < length + Integer.BYTES) {
+                break;
+            }
+            ByteBuffer payload = records.slice(records.position(), length);
+            records.position(records.position() + length);
+            if (records.getInt() != checksum(type, payload.duplicate())) {
+                logger.warn("Cart journal segment [{}] ends with a torn record after [{}] records", file, count);
+                break;
+            }
+            if (type == CHANGE) {
+                onChange.accept(CartCodec.decodeEvent(payload));
+            } else if (type == CLEAR) {
+                onClear.accept(CartCodec.getString(payload));
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private static int readSnapshot(Path file, Consumer<StoredCart> onSnapshot) throws IOException {
+        var checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file)), new CRC32C());
+        try (var in = new DataInputStream(checked)) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IllegalStateException("Not a cart snapshot: " + file);
+            }
+            in.readLong();
+            int count = 0;
+            for (int length = in.readInt(); length >= 0; length = in.readInt(), count++) {
+                onSnapshot.accept(CartCodec.decode(ByteBuffer.wrap(in.readNBytes(length))));
+            }
+            int expected = (int) checked.getChecksum().getValue();
+            if (in.readInt() != expected) {
+                throw new IllegalStateException("Cart snapshot " + file + " is corrupt");
+            }
+            return count;
+        }
+    }
+
+    private OptionalLong last(String prefix) throws IOException {
+        return numbers(prefix).mapToLong(Long::longValue).max();
+    }
+
+    private Stream<Long> numbers(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.indexOf('.') < 0)
+                    .map(name -> Long.parseLong(name.substring(prefix.length())))
+                    .toList()
+                    .stream();
+        }
+    }
+
+    private Path file(String prefix, long number) {
+        return directory.resolve(prefix + String.format("%019d", number));
+    }
+
+    private static int checksum(byte type, ByteBuffer payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,24 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Periodically snapshots the in-memory cart store, which bounds how much of its journal a restart replays
+ * and lets the journal drop the segments the snapshot covers. Does nothing when the store has no journal.
+ */
+@Service
+@ConditionalOnProperty(name = "kickstarter.cart.store.type", havingValue = "memory")
+public class CartSnapshotJob {
+
+    @Autowired
+    private InMemoryCartStore cartStore;
+
+    @Scheduled(fixedDelayString = "${kickstarter.cart.store.memory.snapshot-interval-ms:300000}",
+            initialDelayString = "${kickstarter.cart.store.memory.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        cartStore.snapshot();
+    }
+}
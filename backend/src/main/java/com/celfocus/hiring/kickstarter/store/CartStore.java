@@ -0,0 +1,87 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.exception.PreconditionFailedException;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Storage engine for carts, selected with {@code kickstarter.cart.store.type}: {@code jpa} (default) or {@code memory}.
+ * <p>
+ * Carts handed out by a store are detached copies with an unmodifiable item list; they are safe to cache and
+ * share, and must not be changed by callers.
+ * <p>
+ * Every change bumps the cart's version. Changes take an {@code expected} {@link CartVersion}: when it is not
+ * null, the change is only made if the cart exists and is still at that version, checked atomically with the
+ * write, and fails with {@link PreconditionFailedException} otherwise.
+ */
+public interface CartStore {
+
+    Optional<Cart<CartItem>> find(String userId);
+
+    /**
+     * Adds {@code quantity} units of an item to the user's cart, creating the cart and the line if needed.
+     * Nothing is written when the line's resulting quantity would exceed {@code stock}.
+     *
+     * @return the line's new quantity and the cart's new version, or empty when the stock limit was hit
+     */
+    Optional<ItemAdded> addItem(String userId, CartVersion expected, String itemId, BigDecimal price, int quantity,
+                                int stock, Date lastModified);
+
+    /**
+     * Replaces the lines of an existing cart with what {@code change} returns for its current lines.
+     * {@code change} may throw to abort the update, in which case nothing is written.
+     *
+     * @return the updated cart, or empty when the user has no cart
+     */
+    Optional<Cart<CartItem>> update(String userId, CartVersion expected, Date lastModified, UnaryOperator<List<CartItem>> change);
+
+    /**
+     * Same as {@link #update}, creating an empty cart first when the user has none and no version is expected.
+     */
+    Cart<CartItem> createOrUpdate(String userId, CartVersion expected, Date lastModified, UnaryOperator<List<CartItem>> change);
+
+    /**
+     * @return the deleted cart, or empty when the user had none
+     */
+    Optional<Cart<CartItem>> delete(String userId, CartVersion expected);
+
+    /**
+     * Deletes up to {@code limit} carts last modified before {@code cutoff}.
+     */
+    PurgedCarts purgeExpired(Date cutoff, int limit);
+
+    /**
+     * @return the quantity held in carts per SKU
+     */
+    Map<String, Integer> reservedQuantities();
+
+    /**
+     * Parts of the store that can be purged independently and in parallel, such as the shards of a sharded store.
+     * Each is purged in its own transactions.
+     */
+    default List<? extends CartStore> partitions() {
+        return List.of(this);
+    }
+
+    record ItemAdded(int quantity, CartVersion version) {
+    }
+
+    /**
+     * @param userIds    the users whose carts were selected for purging
+     * @param carts      the number of carts deleted
+     * @param items      the number of cart lines deleted
+     * @param quantities the quantity the deleted lines held, per SKU
+     */
+    record PurgedCarts(List<String> userIds, int carts, int items, Map<String, Integer> quantities) {
+
+        public static final PurgedCarts NONE = new PurgedCarts(List.of(), 0, 0, Map.of());
+    }
+}
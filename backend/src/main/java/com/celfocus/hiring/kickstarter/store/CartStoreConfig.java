@@ -0,0 +1,60 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import com.celfocus.hiring.kickstarter.db.repo.CartItemRepository;
+import com.celfocus.hiring.kickstarter.db.repo.CartRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.unit.DataSize;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+
+/**
+ * Selects the cart storage engine from {@code kickstarter.cart.store.type}. The {@code jpa} store can also be
+ * sharded over several databases (see {@link com.celfocus.hiring.kickstarter.shard.ShardingConfig}).
+ */
+@Configuration
+public class CartStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "kickstarter.cart.store.type", havingValue = "jpa", matchIfMissing = true)
+    public JpaCartStore jpaCartStore(CartRepository cartRepository, CartItemRepository cartItemRepository,
+                                  @Value("${kickstarter.cart.store.jpa.optimistic-locking:false}") boolean optimistic) {
+        return new JpaCartStore(cartRepository, cartItemRepository, optimistic);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "kickstarter.cart.store.type", havingValue = "memory")
+    public InMemoryCartStore inMemoryCartStore(@Value("${kickstarter.cart.store.memory.shards:64}") int shards,
+                                               @Value("${kickstarter.cart.store.memory.off-heap:false}") boolean offHeap,
+                                               @Value("${kickstarter.cart.store.memory.journal:}") String journal,
+                                               @Value("${kickstarter.cart.store.memory.journal-segment-size:64MB}") DataSize segmentSize,
+                                               @Value("${kickstarter.cart.store.memory.journal-fsync:false}") boolean fsync,
+                                               @Value("${kickstarter.cart.store.memory.journal-keep-segments:false}") boolean keepSegments) {
+        return new InMemoryCartStore(shards, offHeap, journal.isBlank() ? null
+                : new CartJournal(Path.of(journal), Math.toIntExact(segmentSize.toBytes()), fsync, keepSegments));
+    }
+
+    /**
+     * With the {@code memory} engine no cart call runs a statement, but {@code CartService} still runs each call in a
+     * transaction. Behind a lazy proxy, that transaction only takes a pooled connection once a statement needs one,
+     * so cart calls never hold a connection or pay for its begin and commit.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "kickstarter.cart.store.type", havingValue = "memory")
+    static BeanPostProcessor lazyConnections() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                    return new LazyConnectionDataSourceProxy(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Builds the detached carts that stores hand out.
+ */
+public final class Carts {
+
+    private Carts() {
+    }
+
+    public static Cart<CartItem> newCart(Long id, String userId, long version, List<CartItem> items, Date lastModified) {
+        Cart<CartItem> cart = new Cart<>();
+        cart.setId(id);
+        cart.setUserId(userId);
+        cart.setVersion(version);
+        cart.setItems(List.copyOf(items));
+        cart.setLastModified(lastModified);
+        return cart;
+    }
+
+    public static CartItem newItem(Long cartId, String itemId, BigDecimal price, Integer quantity) {
+        var item = new CartItem();
+        item.setCartId(cartId);
+        item.setItemId(itemId);
+        item.setPrice(price);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    /**
+     * Encodes a cart that has an id in the same compact form the in-memory store uses.
+     */
+    public static byte[] encode(Cart<? extends CartItem> cart) {
+        @SuppressWarnings("unchecked")
+        var stored = new StoredCart(cart.getId(), (Cart<CartItem>) cart);
+        return CartCodec.encode(stored);
+    }
+
+    public static Cart<CartItem> decode(byte[] bytes) {
+        return CartCodec.decode(ByteBuffer.wrap(bytes)).cart();
+    }
+}
@@ -0,0 +1,326 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.exception.PreconditionFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Cart store that keeps every cart in memory, for short-lived carts that do not need a database.
+ * <p>
+ * Carts are spread over a power-of-two number of shards by user id. Reads are lock-free; changes take the
+ * shard's lock, so users on different shards never wait for each other and the read-modify-write of one cart
+ * is atomic, version check included. Locks are {@link ReentrantLock}s rather than monitors, so a virtual thread waiting for a shard
+ * never pins its carrier.
+ * <p>
+ * With {@code offHeap} set, carts are kept encoded in direct buffers instead of as object graphs, which keeps
+ * large cart populations out of the garbage collector's way at the cost of decoding on every read.
+ * <p>
+ * With a {@link CartJournal} the store is event-sourced: every change is appended to the journal as a
+ * {@link CartEvent}, and the store is rebuilt on start-up from the latest {@link #snapshot() snapshot} plus the
+ * events logged after it. A change only becomes visible, to readers as well as to the writer, once its event is
+ * durable: the writer waits for the journal while it holds the shard lock, and publishes the cart after. Writers
+ * on other shards keep appending meanwhile and share the journal's flushes.
+ */
+public class InMemoryCartStore implements CartStore, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryCartStore.class);
+
+    private final Shard[] shards;
+    private final boolean offHeap;
+    private final CartJournal journal;
+    private final AtomicLong ids = new AtomicLong();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    /**
+     * @param journal where changes are logged, or null to keep carts in memory only
+     */
+    public InMemoryCartStore(int shardCount, boolean offHeap, CartJournal journal) {
+        int size = shardCount <= 1 ? 1 : Integer.highestOneBit(shardCount - 1) << 1;
+        this.shards = new Shard[size];
+        for (int i = 0; i < size; i++) {
+            shards[i] = new Shard();
+        }
+        this.offHeap = offHeap;
+        this.journal = journal;
+        if (journal != null) {
+            journal.recover(
+                    this::restore,
+                    event -> restore(event.applyTo(get(shard(event.userId()), event.userId()))),
+                    userId -> shard(userId).carts.remove(userId));
+        }
+        logger.info("In-memory cart store ready with [{}] shards{}", size, offHeap ? " (off-heap)" : "");
+    }
+
+    @Override
+    public Optional<Cart<CartItem>> find(String userId) {
+        return Optional.ofNullable(get(shard(userId), userId)).map(StoredCart::cart);
+    }
+
+    @Override
+    public Optional<ItemAdded> addItem(String userId, CartVersion expected, String itemId, BigDecimal price, int quantity,
+                                       int stock, Date lastModified) {
+        Shard shard = shard(userId);
+        int updated;
+        StoredCart after;
+        shard.lock.lock();
+        try {
+            StoredCart stored = get(shard, userId);
+            checkVersion(stored, expected);
+            long id = stored == null ? ids.incrementAndGet() : stored.id();
+            List<CartItem> items = new ArrayList<>(stored == null ? List.of() : stored.cart().getItems());
+            int line = -1;
+            for (int i = 0; i < items.size() && line < 0; i++) {
+                if (items.get(i).getItemId().equals(itemId)) {
+                    line = i;
+                }
+            }
+            updated = line < 0 ? quantity : items.get(line).getQuantity() + quantity;
+            if (updated > stock) {
+                return Optional.empty();
+            }
+            var item = Carts.newItem(id, itemId, price, updated);
+            if (line < 0) {
+                items.add(item);
+            } else {
+                items.set(line, item);
+            }
+            after = new StoredCart(id, Carts.newCart(id, userId, nextVersion(stored), items, lastModified));
+            put(shard, stored, after);
+        } finally {
+            shard.lock.unlock();
+        }
+        return Optional.of(new ItemAdded(updated, CartVersion.of(after.cart())));
+    }
+
+    @Override
+    public Optional<Cart<CartItem>> update(String userId, CartVersion expected, Date lastModified,
+                                           UnaryOperator<List<CartItem>> change) {
+        return Optional.ofNullable(apply(userId, expected, lastModified, false, change));
+    }
+
+    @Override
+    public Cart<CartItem> createOrUpdate(String userId, CartVersion expected, Date lastModified,
+                                         UnaryOperator<List<CartItem>> change) {
+        return apply(userId, expected, lastModified, true, change);
+    }
+
+    @Override
+    public Optional<Cart<CartItem>> delete(String userId, CartVersion expected) {
+        Shard shard = shard(userId);
+        StoredCart stored;
+        shard.lock.lock();
+        try {
+            stored = get(shard, userId);
+            checkVersion(stored, expected);
+            if (stored == null) {
+                return Optional.empty();
+            }
+            remove(shard, userId);
+        } finally {
+            shard.lock.unlock();
+        }
+        return Optional.of(stored.cart());
+    }
+
+    @Override
+    public PurgedCarts purgeExpired(Date cutoff, int limit) {
+        List<String> userIds = new ArrayList<>();
+        Map<String, Integer> quantities = new HashMap<>();
+        int items = 0;
+        for (Shard shard : shards) {
+            for (String userId : shard.carts.keySet()) {
+                if (userIds.size() == limit) {
+                    return new PurgedCarts(userIds, userIds.size(), items, quantities);
+                }
+                StoredCart candidate = get(shard, userId);
+                if (candidate == null || !isExpired(candidate.cart(), cutoff)) {
+                    continue;
+                }
+                shard.lock.lock();
+                try {
+                    StoredCart stored = get(shard, userId);
+                    if (stored != null && isExpired(stored.cart(), cutoff)) {
+                        remove(shard, userId);
+                        userIds.add(userId);
+                        items += stored.cart().getItems().size();
+                        stored.cart().getItems().forEach(item -> quantities.merge(item.getItemId(), item.getQuantity(), Integer::sum));
+                    }
+                } finally {
+                    shard.lock.unlock();
+                }
+            }
+        }
+        return new PurgedCarts(userIds, userIds.size(), items, quantities);
+    }
+
+    @Override
+    public Map<String, Integer> reservedQuantities() {
+        Map<String, Integer> quantities = new HashMap<>();
+        for (Shard shard : shards) {
+            for (Object slot : shard.carts.values()) {
+                unpack(slot).cart().getItems().forEach(item -> quantities.merge(item.getItemId(), item.getQuantity(), Integer::sum));
+            }
+        }
+        return quantities;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.carts.size();
+        }
+        return size;
+    }
+
+    /**
+     * Writes every cart to a journal snapshot, so that a restart only replays the events logged after it.
+     * Writers are held back only while the journal starts a new segment, not while the snapshot is written:
+     * events that reach the new segment during the snapshot are replayed on top of it, which is harmless since
+     * applying an event again leaves the cart unchanged.
+     */
+    public void snapshot() {
+        if (journal == null) {
+            return;
+        }
+        snapshotLock.lock();
+        try {
+            long from;
+            for (Shard shard : shards) {
+                shard.lock.lock();
+            }
+            try {
+                from = journal.rotate();
+            } finally {
+                for (Shard shard : shards) {
+                    shard.lock.unlock();
+                }
+            }
+            journal.writeSnapshot(from, Stream.of(shards)
+                    .flatMap(shard -> shard.carts.values().stream())
+                    .map(InMemoryCartStore::unpack));
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Snapshots the store before closing its journal, so the next start-up has nothing to replay.
+     */
+    @Override
+    public void close() throws IOException {
+        if (journal != null) {
+            snapshot();
+            journal.close();
+        }
+    }
+
+    private Cart<CartItem> apply(String userId, CartVersion expected, Date lastModified, boolean create,
+                                 UnaryOperator<List<CartItem>> change) {
+        Shard shard = shard(userId);
+        Cart<CartItem> cart;
+        shard.lock.lock();
+        try {
+            StoredCart stored = get(shard, userId);
+            checkVersion(stored, expected);
+            if (stored == null && !create) {
+                return null;
+            }
+            long id = stored == null ? ids.incrementAndGet() : stored.id();
+            List<CartItem> current = stored == null ? List.of() : stored.cart().getItems();
+            List<CartItem> items = new ArrayList<>();
+            for (CartItem item : change.apply(current)) {
+                items.add(Carts.newItem(id, item.getItemId(), item.getPrice(), item.getQuantity()));
+            }
+            cart = Carts.newCart(id, userId, nextVersion(stored), items, lastModified);
+            put(shard, stored, new StoredCart(id, cart));
+        } finally {
+            shard.lock.unlock();
+        }
+        return cart;
+    }
+
+    private static void checkVersion(StoredCart stored, CartVersion expected) {
+        if (expected != null && (stored == null || !expected.matches(stored.cart()))) {
+            throw new PreconditionFailedException("Cart has been modified");
+        }
+    }
+
+    private static long nextVersion(StoredCart stored) {
+        return stored == null ? 1 : stored.cart().getVersion() + 1;
+    }
+
+    private static boolean isExpired(Cart<CartItem> cart, Date cutoff) {
+        return cart.getLastModified() != null && cart.getLastModified().before(cutoff);
+    }
+
+    private Shard shard(String userId) {
+        int hash = userId.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+    }
+
+    private StoredCart get(Shard shard, String userId) {
+        Object slot = shard.carts.get(userId);
+        return slot == null ? null : unpack(slot);
+    }
+
+    /**
+     * Logs the change and publishes it once it is durable. Called with the shard lock held.
+     */
+    private void put(Shard shard, StoredCart before, StoredCart after) {
+        if (journal != null) {
+            journal.await(journal.appendChange(CartEvent.between(before, after)));
+        }
+        shard.carts.put(after.cart().getUserId(), pack(after));
+    }
+
+    private void remove(Shard shard, String userId) {
+        if (journal != null) {
+            journal.await(journal.appendClear(userId));
+        }
+        shard.carts.remove(userId);
+    }
+
+    private void restore(StoredCart stored) {
+        shard(stored.cart().getUserId()).carts.put(stored.cart().getUserId(), pack(stored));
+        ids.accumulateAndGet(stored.id(), Math::max);
+    }
+
+    private Object pack(StoredCart stored) {
+        if (!offHeap) {
+            return stored;
+        }
+        byte[] bytes = CartCodec.encode(stored);
+        return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+
+    private static StoredCart unpack(Object slot) {
+        if (slot instanceof ByteBuffer buffer) {
+            return CartCodec.decode(buffer.duplicate());
+        }
+        return (StoredCart) slot;
+    }
+
+    private static final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Object> carts = new ConcurrentHashMap<>();
+    }
+}
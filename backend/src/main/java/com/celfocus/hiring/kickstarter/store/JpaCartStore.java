@@ -0,0 +1,270 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import com.celfocus.hiring.kickstarter.db.entity.CartEntity;
+import com.celfocus.hiring.kickstarter.db.entity.CartItemEntity;
+import com.celfocus.hiring.kickstarter.db.repo.CartItemRepository;
+import com.celfocus.hiring.kickstarter.db.repo.CartRepository;
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.exception.PreconditionFailedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cart store backed by the relational database through JPA.
+ * <p>
+ * Reads use the {@link CartRepository.CartLine} projection (one query, no entities). Adding an item is a cart
+ * upsert plus a line upsert that enforces the stock limit. Other updates load the cart with a fetch join and
+ * apply the difference through its item collection, which Hibernate flushes as JDBC batches.
+ * <p>
+ * Every change bumps the cart's version, and checks the expected version if there is one. Two locking modes keep
+ * concurrent changes to one cart from losing each other's updates:
+ * <ul>
+ *     <li>pessimistic (default): the change starts with a single statement on the cart row that bumps its version.
+ *     That statement also locks the row, so the rest of the change cannot interleave with another writer's.</li>
+ *     <li>optimistic: the cart is read without a lock and the change ends with a compare-and-set of the version it
+ *     read. If another writer got there first, nothing is written and the change fails with an
+ *     {@link ObjectOptimisticLockingFailureException}, for the caller to retry on fresh data. Writers only hold the
+ *     row lock for the final statements, which suits carts that are read much more often than two tabs change them
+ *     at once.</li>
+ * </ul>
+ * Adding an item needs neither: the line upsert is a single atomic {@code QUANTITY = QUANTITY + ?} statement.
+ * Lines carry a {@code @Version} of their own as well, so even a line written through the entity can never
+ * overwrite a concurrent upsert.
+ */
+@Transactional
+public class JpaCartStore implements CartStore {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final boolean optimistic;
+
+    public JpaCartStore(CartRepository cartRepository, CartItemRepository cartItemRepository) {
+        this(cartRepository, cartItemRepository, false);
+    }
+
+    /**
+     * @param optimistic whether to check the cart's version when the change is written instead of locking its row
+     *                   up front
+     */
+    public JpaCartStore(CartRepository cartRepository, CartItemRepository cartItemRepository, boolean optimistic) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.optimistic = optimistic;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Cart<CartItem>> find(String userId) {
+        var lines = cartRepository.findCartLines(userId);
+        if (lines.isEmpty()) {
+            return Optional.empty();
+        }
+        List<CartItem> items = new ArrayList<>(lines.size());
+        for (CartRepository.CartLine line : lines) {
+            if (line.getItemId() != null) {
+                items.add(Carts.newItem(line.getCartId(), line.getItemId(), line.getPrice(), line.getQuantity()));
+            }
+        }
+        var first = lines.get(0);
+        return Optional.of(Carts.newCart(first.getCartId(), first.getUserId(), first.getVersion(), items, first.getLastModified()));
+    }
+
+    @Override
+    public Optional<ItemAdded> addItem(String userId, CartVersion expected, String itemId, BigDecimal price, int quantity,
+                                       int stock, Date lastModified) {
+        CartVersion version;
+        if (expected == null) {
+            var revision = upsertCart(userId, lastModified);
+            version = new CartVersion(revision.getCartId(), revision.getVersion());
+        } else {
+            touch(userId, expected, lastModified);
+            version = expected.next();
+        }
+        return cartItemRepository.upsertItem(userId, itemId, price, quantity, stock)
+                .map(updated -> new ItemAdded(updated, version));
+    }
+
+    @Override
+    public Optional<Cart<CartItem>> update(String userId, CartVersion expected, Date lastModified,
+                                           UnaryOperator<List<CartItem>> change) {
+        if (optimistic) {
+            var cart = cartRepository.findWithItemsByUserId(userId);
+            if (cart.isEmpty()) {
+                checkVersion(null, expected);
+                return Optional.empty();
+            }
+            return Optional.of(applyAndSwap(cart.get(), expected, lastModified, change));
+        }
+        if (!touch(userId, expected, lastModified)) {
+            return Optional.empty();
+        }
+        return cartRepository.findWithItemsByUserId(userId)
+                .map(cart -> apply(cart, change));
+    }
+
+    @Override
+    public Cart<CartItem> createOrUpdate(String userId, CartVersion expected, Date lastModified,
+                                         UnaryOperator<List<CartItem>> change) {
+        if (optimistic) {
+            var cart = cartRepository.findWithItemsByUserId(userId);
+            if (cart.isPresent()) {
+                return applyAndSwap(cart.get(), expected, lastModified, change);
+            }
+            checkVersion(null, expected);
+        }
+        if (expected == null) {
+            upsertCart(userId, lastModified);
+        } else {
+            touch(userId, expected, lastModified);
+        }
+        return apply(cartRepository.findWithItemsByUserId(userId).orElseThrow(), change);
+    }
+
+    /**
+     * In optimistic mode the delete itself is conditional on the version that was read, through the cart's
+     * {@code @Version}.
+     */
+    @Override
+    public Optional<Cart<CartItem>> delete(String userId, CartVersion expected) {
+        if (optimistic) {
+            var cart = cartRepository.findWithItemsByUserId(userId);
+            checkVersion(cart.orElse(null), expected);
+            return cart.map(found -> {
+                var deleted = toCart(found);
+                cartRepository.delete(found);
+                return deleted;
+            });
+        }
+        if (expected != null) {
+            touch(userId, expected, new Date());
+        }
+        return cartRepository.findWithItemsByUserId(userId).map(cart -> {
+            var deleted = toCart(cart);
+            cartRepository.delete(cart);
+            return deleted;
+        });
+    }
+
+    @Override
+    public PurgedCarts purgeExpired(Date cutoff, int limit) {
+        List<CartRepository.CartKey> expired = cartRepository.findExpired(cutoff, PageRequest.of(0, limit));
+        if (expired.isEmpty()) {
+            return PurgedCarts.NONE;
+        }
+        List<Long> cartIds = expired.stream().map(CartRepository.CartKey::getId).toList();
+        Map<String, Integer> quantities = new HashMap<>();
+        cartItemRepository.sumExpiredQuantityByItemId(cartIds, cutoff)
+                .forEach(reserved -> quantities.put(reserved.getItemId(), reserved.getQuantity().intValue()));
+        int items = cartItemRepository.deleteExpired(cartIds, cutoff);
+        int carts = cartRepository.deleteExpired(cartIds, cutoff);
+        return new PurgedCarts(expired.stream().map(CartRepository.CartKey::getUserId).toList(), carts, items, quantities);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Integer> reservedQuantities() {
+        Map<String, Integer> quantities = new HashMap<>();
+        cartItemRepository.sumQuantityByItemId()
+                .forEach(reserved -> quantities.put(reserved.getItemId(), reserved.getQuantity().intValue()));
+        return quantities;
+    }
+
+    /**
+     * Two transactions creating the same user's cart at once both take the insert branch, and the second one fails
+     * on the unique user id. That is reported as a {@link DuplicateKeyException}, for the caller to retry: by
+     * then the cart exists, and the upsert updates it.
+     */
+    private CartRepository.CartRevision upsertCart(String userId, Date lastModified) {
+        try {
+            return cartRepository.upsertCart(userId, lastModified);
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateKeyException("Cart for [" + userId + "] was created concurrently", e);
+        }
+    }
+
+    /**
+     * @return whether the user has a cart; when a version is expected, a missing cart fails the precondition instead
+     */
+    private boolean touch(String userId, CartVersion expected, Date lastModified) {
+        if (expected == null) {
+            return cartRepository.touchCart(userId, lastModified) > 0;
+        }
+        if (cartRepository.touchCart(userId, expected.cartId(), expected.version(), lastModified) == 0) {
+            throw new PreconditionFailedException("Cart has been modified");
+        }
+        return true;
+    }
+
+    private static void checkVersion(CartEntity cart, CartVersion expected) {
+        if (expected != null && (cart == null || !expected.matches(cart))) {
+            throw new PreconditionFailedException("Cart has been modified");
+        }
+    }
+
+    /**
+     * Applies the change to a cart read without a lock, then bumps its version only if it is still the one read.
+     */
+    private Cart<CartItem> applyAndSwap(CartEntity cart, CartVersion expected, Date lastModified,
+                                        UnaryOperator<List<CartItem>> change) {
+        checkVersion(cart, expected);
+        long version = cart.getVersion();
+        var updated = apply(cart, change);
+        if (cartRepository.touchCart(cart.getUserId(), cart.getId(), version, lastModified) == 0) {
+            throw new ObjectOptimisticLockingFailureException(CartEntity.class, cart.getId());
+        }
+        return Carts.newCart(updated.getId(), updated.getUserId(), version + 1, updated.getItems(), lastModified);
+    }
+
+    private Cart<CartItem> apply(CartEntity cart, UnaryOperator<List<CartItem>> change) {
+        Map<String, CartItemEntity> current = new HashMap<>();
+        for (CartItemEntity item : cart.getItems()) {
+            current.put(item.getItemId(), item);
+        }
+        List<CartItem> updated = change.apply(toCart(cart).getItems());
+
+        Map<String, CartItem> wanted = new HashMap<>();
+        for (CartItem item : updated) {
+            wanted.put(item.getItemId(), item);
+            var line = current.get(item.getItemId());
+            if (line == null) {
+                cart.getItems().add(newLine(cart, item));
+            } else if (!line.getQuantity().equals(item.getQuantity())) {
+                line.setQuantity(item.getQuantity());
+            }
+        }
+        cart.getItems().removeIf(line -> !wanted.containsKey(line.getItemId()));
+        return toCart(cart);
+    }
+
+    private static CartItemEntity newLine(CartEntity cart, CartItem item) {
+        var line = new CartItemEntity();
+        line.setCart(cart);
+        line.setCartId(cart.getId());
+        line.setItemId(item.getItemId());
+        line.setPrice(item.getPrice());
+        line.setQuantity(item.getQuantity());
+        return line;
+    }
+
+    private static Cart<CartItem> toCart(CartEntity cart) {
+        List<CartItem> items = new ArrayList<>(cart.getItems().size());
+        for (CartItemEntity item : cart.getItems()) {
+            items.add(Carts.newItem(item.getCartId(), item.getItemId(), item.getPrice(), item.getQuantity()));
+        }
+        return Carts.newCart(cart.getId(), cart.getUserId(), cart.getVersion(), items, cart.getLastModified());
+    }
+}
@@ -0,0 +1,156 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.shard.CartShards;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Spreads carts over {@link CartShards}: each user's carts live in their shard's database, so writes for users on
+ * different shards never contend on the same tables or locks.
+ * <p>
+ * Every call for a user runs the {@link JpaCartStore} on the user's shard. A transaction sticks to the shard of the
+ * first user it touches, and must not touch users on other shards. Whole-store operations visit every shard, each
+ * in a transaction of its own, and must therefore be called outside one; the cleanup job purges the
+ * {@link #partitions() shards} in parallel.
+ */
+public class ShardedCartStore implements CartStore {
+
+    private final CartStore delegate;
+    private final CartShards shards;
+
+    public ShardedCartStore(CartStore delegate, CartShards shards) {
+        this.delegate = delegate;
+        this.shards = shards;
+    }
+
+    @Override
+    public Optional<Cart<CartItem>> find(String userId) {
+        return shards.onShardOf(userId, () -> delegate.find(userId));
+    }
+
+    @Override
+    public Optional<ItemAdded> addItem(String userId, CartVersion expected, String itemId, BigDecimal price, int quantity,
+                                       int stock, Date lastModified) {
+        return shards.onShardOf(userId, () -> delegate.addItem(userId, expected, itemId, price, quantity, stock, lastModified));
+    }
+
+    @Override
+    public Optional<Cart<CartItem>> update(String userId, CartVersion expected, Date lastModified,
+                                           UnaryOperator<List<CartItem>> change) {
+        return shards.onShardOf(userId, () -> delegate.update(userId, expected, lastModified, change));
+    }
+
+    @Override
+    public Cart<CartItem> createOrUpdate(String userId, CartVersion expected, Date lastModified,
+                                         UnaryOperator<List<CartItem>> change) {
+        return shards.onShardOf(userId, () -> delegate.createOrUpdate(userId, expected, lastModified, change));
+    }
+
+    @Override
+    public Optional<Cart<CartItem>> delete(String userId, CartVersion expected) {
+        return shards.onShardOf(userId, () -> delegate.delete(userId, expected));
+    }
+
+    @Override
+    public PurgedCarts purgeExpired(Date cutoff, int limit) {
+        checkNoTransaction();
+        List<String> userIds = new ArrayList<>();
+        Map<String, Integer> quantities = new HashMap<>();
+        int carts = 0;
+        int items = 0;
+        for (CartStore partition : partitions()) {
+            if (userIds.size() >= limit) {
+                break;
+            }
+            var purged = partition.purgeExpired(cutoff, limit - userIds.size());
+            userIds.addAll(purged.userIds());
+            carts += purged.carts();
+            items += purged.items();
+            purged.quantities().forEach((sku, quantity) -> quantities.merge(sku, quantity, Integer::sum));
+        }
+        return new PurgedCarts(userIds, carts, items, quantities);
+    }
+
+    @Override
+    public Map<String, Integer> reservedQuantities() {
+        checkNoTransaction();
+        Map<String, Integer> quantities = new HashMap<>();
+        for (CartStore partition : partitions()) {
+            partition.reservedQuantities().forEach((sku, quantity) -> quantities.merge(sku, quantity, Integer::sum));
+        }
+        return quantities;
+    }
+
+    @Override
+    public List<Shard> partitions() {
+        return IntStream.range(0, shards.count()).mapToObj(Shard::new).toList();
+    }
+
+    private static void checkNoTransaction() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Operations over every shard cannot run in a single transaction");
+        }
+    }
+
+    /**
+     * One shard. Per-user calls are still routed to the user's own shard.
+     */
+    public final class Shard implements CartStore {
+
+        private final int shard;
+
+        private Shard(int shard) {
+            this.shard = shard;
+        }
+
+        @Override
+        public Optional<Cart<CartItem>> find(String userId) {
+            return ShardedCartStore.this.find(userId);
+        }
+
+        @Override
+        public Optional<ItemAdded> addItem(String userId, CartVersion expected, String itemId, BigDecimal price,
+                                           int quantity, int stock, Date lastModified) {
+            return ShardedCartStore.this.addItem(userId, expected, itemId, price, quantity, stock, lastModified);
+        }
+
+        @Override
+        public Optional<Cart<CartItem>> update(String userId, CartVersion expected, Date lastModified,
+                                               UnaryOperator<List<CartItem>> change) {
+            return ShardedCartStore.this.update(userId, expected, lastModified, change);
+        }
+
+        @Override
+        public Cart<CartItem> createOrUpdate(String userId, CartVersion expected, Date lastModified,
+                                             UnaryOperator<List<CartItem>> change) {
+            return ShardedCartStore.this.createOrUpdate(userId, expected, lastModified, change);
+        }
+
+        @Override
+        public Optional<Cart<CartItem>> delete(String userId, CartVersion expected) {
+            return ShardedCartStore.this.delete(userId, expected);
+        }
+
+        @Override
+        public PurgedCarts purgeExpired(Date cutoff, int limit) {
+            return shards.onShard(shard, () -> delegate.purgeExpired(cutoff, limit));
+        }
+
+        @Override
+        public Map<String, Integer> reservedQuantities() {
+            return shards.onShard(shard, delegate::reservedQuantities);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+
+/**
+ * A cart as kept by {@link InMemoryCartStore}, with the id its lines carry.
+ */
+record StoredCart(long id, Cart<CartItem> cart) {
+}
@@ -0,0 +1,67 @@
+package com.celfocus.hiring.kickstarter.util;
+
+import com.celfocus.hiring.kickstarter.cache.CartCache;
+import com.celfocus.hiring.kickstarter.cache.TwoLevelCache;
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.cache.support.NullValue;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bulk operations over Spring {@link Cache}s, which only expose single-key access.
+ * When the cache is backed by Caffeine the native bulk call is used instead of a per-key loop.
+ */
+public class Caches {
+
+    private Caches() {
+    }
+
+    /**
+     * @return the cached values for the given keys; keys that are absent or cached as {@code null} are omitted
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<Object, Object> getAllPresent(Cache cache, Collection<?> keys) {
+        Map<Object, Object> present = new HashMap<>();
+        if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+            ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache).getAllPresent(keys)
+                    .forEach((key, value) -> {
+                        if (value != NullValue.INSTANCE) {
+                            present.put(key, value);
+                        }
+                    });
+            return present;
+        }
+        for (Object key : keys) {
+            Cache.ValueWrapper wrapper = cache.get(key);
+            if (wrapper != null && wrapper.get() != null) {
+                present.put(key, wrapper.get());
+            }
+        }
+        return present;
+    }
+
+    /**
+     * Evicts all the given keys, in a single call when the cache is backed by Caffeine or is a {@link TwoLevelCache}.
+     * A {@link CartCache} evicts key by key, so that every evicted cart leaves its tombstone.
+     */
+    @SuppressWarnings("unchecked")
+    public static void evictAll(Cache cache, Collection<?> keys) {
+        if (cache.getNativeCache() instanceof TwoLevelCache twoLevelCache) {
+            twoLevelCache.evictAll(keys);
+            return;
+        }
+        Cache target = cache instanceof TransactionAwareCacheDecorator decorator ? decorator.getTargetCache() : cache;
+        if (target instanceof CartCache cartCache) {
+            keys.forEach(cartCache::evict);
+            return;
+        }
+        if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+            ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache).invalidateAll(keys);
+            return;
+        }
+        keys.forEach(cache::evict);
+    }
+}
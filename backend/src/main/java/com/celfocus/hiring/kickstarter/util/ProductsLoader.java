@@ -1,25 +1,66 @@
 package com.celfocus.hiring.kickstarter.util;
 
 import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalog;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.core.io.ClassPathResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.List;
 
+/**
+ * Streams product files into a {@link ProductCatalog.Builder}, one product at a time, so a catalog is indexed
+ * while it is read instead of being parsed into a document first. A file is either a JSON array of products,
+ * like {@code products.json}, or newline-delimited JSON with one product per line.
+ */
 public class ProductsLoader {
-    private static final String PRODUCTS_JSON_PATH = "products.json";
+    private static final Logger logger = LoggerFactory.getLogger(ProductsLoader.class);
 
-    public static List<ProductEntity> loadProducts(ObjectMapper objectMapper) {
+    public static void readProducts(ObjectMapper objectMapper, InputStream in, ProductCatalog.Builder catalog) throws IOException {
+        try (MappingIterator<ProductEntity> products = objectMapper.readerFor(ProductEntity.class).readValues(in)) {
+            while (products.hasNextValue()) {
+                catalog.add(products.nextValue());
+            }
+        }
+    }
+
+    /**
+     * Applies a delta file to the catalog. Each entry names a product by {@code sku} and either carries the fields
+     * that change, e.g. {@code {"sku": "SKUTEST1", "price": 99.95}}, or {@code "deleted": true} to remove it.
+     * An entry for an unknown SKU adds the product. Products are copied before they are changed, so catalogs
+     * already built from the same products are left as they were.
+     */
+    public static void readDelta(ObjectMapper objectMapper, InputStream in, ProductCatalog.Builder catalog) throws IOException {
+        try (MappingIterator<JsonNode> entries = objectMapper.readerFor(JsonNode.class).readValues(in)) {
+            while (entries.hasNextValue()) {
+                JsonNode entry = entries.nextValue();
+                String sku = entry.path("sku").asText(null);
+                if (sku == null) {
+                    logger.warn("Skipping catalog delta entry without a SKU");
+                } else if (entry.path("deleted").asBoolean(false)) {
+                    catalog.remove(sku);
+                } else {
+                    ProductEntity product = copyOf(catalog.get(sku));
+                    catalog.put(objectMapper.readerForUpdating(product).readValue(entry));
+                }
+            }
+        }
+    }
 
-        try {
-            ClassPathResource classPathResource = new ClassPathResource(PRODUCTS_JSON_PATH);
-            InputStream in = classPathResource.getInputStream();
-            return objectMapper.readValue(in, new TypeReference<>() {
-            });
-        } catch (Exception e) {
-            throw new RuntimeException("Error reading products.json", e);
+    private static ProductEntity copyOf(ProductEntity source) {
+        ProductEntity product = new ProductEntity();
+        if (source != null) {
+            product.setSku(source.getSku());
+            product.setName(source.getName());
+            product.setDescription(source.getDescription());
+            product.setCategory(source.getCategory());
+            product.setPrice(source.getPrice());
+            product.setimageUrl(source.getimageUrl());
+            product.setQuantity(source.getQuantity());
         }
+        return product;
     }
 }
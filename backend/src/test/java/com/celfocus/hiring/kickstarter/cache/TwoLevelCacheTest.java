@@ -0,0 +1,134 @@
+package com.celfocus.hiring.kickstarter.cache;
+
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.store.Carts;
+import com.celfocus.hiring.kickstarter.util.Caches;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two nodes on one machine: separate local levels over the embedded shared cache and invalidation bus.
+ */
+class TwoLevelCacheTest {
+
+    private SharedCache shared;
+    private TwoLevelCache nodeA;
+    private TwoLevelCache nodeB;
+
+    @BeforeEach
+    void setUp() {
+        shared = new EmbeddedSharedCache(100, Duration.ofMinutes(1));
+        InvalidationBus bus = new EmbeddedInvalidationBus();
+        nodeA = node("a", bus);
+        nodeB = node("b", bus);
+    }
+
+    @Test
+    void testPutOnOneNodeIsReadOnAnother() {
+        nodeA.put("john", cart(1, 1, 2));
+
+        assertEquals(2, quantity(nodeB.get("john", Cart.class)));
+        assertEquals(1, nodeB.getSharedHits());
+        assertNotNull(nodeB.getLocal().get("john"));
+    }
+
+    @Test
+    void testChangeOnOneNodeInvalidatesTheOther() {
+        nodeA.put("john", cart(1, 1, 2));
+        assertEquals(2, quantity(nodeB.get("john", Cart.class)));
+
+        nodeA.put("john", cart(1, 2, 3));
+
+        assertNull(nodeB.getLocal().get("john"));
+        assertEquals(3, quantity(nodeB.get("john", Cart.class)));
+    }
+
+    @Test
+    void testEvictOnOneNodeEvictsEverywhere() {
+        nodeA.put("john", cart(1, 1, 2));
+        nodeA.put("jane", cart(2, 1, 1));
+        nodeB.get("john");
+        nodeB.get("jane");
+
+        nodeA.evict("john");
+        Caches.evictAll(nodeA, List.of("jane"));
+
+        assertNull(nodeB.get("john"));
+        assertNull(nodeB.get("jane"));
+        assertEquals(new Tombstone(1, 1), CartCache.decode(shared.get(CacheConfig.CART_CACHE, "john")));
+    }
+
+    @Test
+    void testStalePutAfterEvictIsRefused() {
+        nodeA.put("john", cart(1, 2, 2));
+
+        nodeA.evict("john");
+        nodeB.put("john", cart(1, 2, 2));
+        nodeB.put("john", cart(1, 1, 1));
+
+        assertNull(nodeA.get("john"));
+        assertNull(nodeB.get("john"));
+        assertEquals(new Tombstone(1, 2), CartCache.decode(shared.get(CacheConfig.CART_CACHE, "john")));
+        nodeB.put("john", cart(2, 1, 3));
+        assertEquals(3, quantity(nodeA.get("john", Cart.class)));
+    }
+
+    @Test
+    void testStalePutAfterLocalEvictIsRefused() {
+        var cache = new CartCache(CacheConfig.CART_CACHE, Caffeine.newBuilder().build(), true);
+        cache.put("john", cart(1, 2, 2));
+
+        cache.evict("john");
+        cache.put("john", cart(1, 2, 2));
+
+        assertNull(cache.get("john"));
+        cache.put("john", cart(1, 3, 4));
+        assertEquals(4, quantity(cache.get("john", Cart.class)));
+    }
+
+    @Test
+    void testOlderWriteDoesNotReplaceNewerOne() {
+        nodeA.put("john", cart(1, 3, 5));
+
+        nodeB.put("john", cart(1, 2, 4));
+
+        assertEquals(5, quantity(nodeA.get("john", Cart.class)));
+        assertEquals(5, quantity(nodeB.get("john", Cart.class)));
+        nodeB.put("john", cart(2, 1, 1));
+        assertEquals(1, quantity(nodeA.get("john", Cart.class)));
+    }
+
+    @Test
+    void testClearDropsEveryNodesCopies() {
+        nodeA.put("john", cart(1, 1, 2));
+        nodeB.get("john");
+
+        nodeB.clear();
+
+        assertNull(nodeA.get("john"));
+        assertNull(nodeB.get("john"));
+    }
+
+    private TwoLevelCache node(String nodeId, InvalidationBus bus) {
+        var local = new CartCache(CacheConfig.CART_CACHE, Caffeine.newBuilder().build(), true);
+        return new TwoLevelCache(local, shared, bus, nodeId, CartCache::encode, CartCache::decode,
+                CartCache::supersedes, Tombstone::of);
+    }
+
+    private static Cart<CartItem> cart(long id, long version, int quantity) {
+        return Carts.newCart(id, "john", version, List.of(Carts.newItem(id, "sku123", BigDecimal.TEN, quantity)), new Date());
+    }
+
+    private static int quantity(Cart<?> cart) {
+        return cart.getItems().get(0).getQuantity();
+    }
+}
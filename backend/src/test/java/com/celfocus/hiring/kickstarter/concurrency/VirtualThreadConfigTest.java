@@ -0,0 +1,48 @@
+package com.celfocus.hiring.kickstarter.concurrency;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadConfigTest {
+
+    @Test
+    void testConnectionPoolIsCappedForVirtualThreads() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(10);
+        dataSource.setMinimumIdle(10);
+
+        BeanPostProcessor processor = VirtualThreadConfig.connectionPoolBound(4);
+        processor.postProcessAfterInitialization(dataSource, "dataSource");
+
+        assertEquals(4, dataSource.getMaximumPoolSize());
+        assertEquals(4, dataSource.getMinimumIdle());
+    }
+
+    @Test
+    void testDefaultConnectionPoolIsCapped() {
+        HikariDataSource dataSource = new HikariDataSource();
+
+        VirtualThreadConfig.connectionPoolBound(4).postProcessAfterInitialization(dataSource, "dataSource");
+
+        assertEquals(4, dataSource.getMaximumPoolSize());
+    }
+
+    @Test
+    void testSmallerConnectionPoolIsLeftAlone() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(2);
+
+        VirtualThreadConfig.connectionPoolBound(4).postProcessAfterInitialization(dataSource, "dataSource");
+
+        assertEquals(2, dataSource.getMaximumPoolSize());
+    }
+
+    @Test
+    void testDefaultLeavesOneCarrierFree() {
+        assertEquals(7, VirtualThreadConfig.defaultMaxConnections(8));
+        assertEquals(1, VirtualThreadConfig.defaultMaxConnections(1));
+    }
+}
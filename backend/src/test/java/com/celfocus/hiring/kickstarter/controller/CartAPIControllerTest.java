@@ -4,11 +4,15 @@ import com.celfocus.hiring.kickstarter.api.CartAPIController;
 import com.celfocus.hiring.kickstarter.api.CartService;
 import com.celfocus.hiring.kickstarter.api.ProductService;
 import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemOperation;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemOperationsInput;
 import com.celfocus.hiring.kickstarter.api.dto.CartItemResponse;
 import com.celfocus.hiring.kickstarter.api.dto.CartResponse;
 import com.celfocus.hiring.kickstarter.domain.Cart;
 import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
 import com.celfocus.hiring.kickstarter.domain.Product;
+import com.celfocus.hiring.kickstarter.exception.PreconditionFailedException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -21,7 +25,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -59,16 +63,26 @@ class CartAPIControllerTest {
     @Test
     void testAddItemToCart() {
         CartItemInput input = new CartItemInput("sku123");
-        ResponseEntity<Void> response = cartAPIController.addItemToCart(input);
+        doReturn(cart(7L, 2)).when(cartService).addItemToCart("john", input, null);
+        ResponseEntity<Void> response = cartAPIController.addItemToCart(input, null);
         assertEquals(201, response.getStatusCodeValue());
-        verify(cartService).addItemToCart("john", input);
+        assertEquals("\"7-2\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    void testAddItemToCartIfMatch() {
+        CartItemInput input = new CartItemInput("sku123");
+        doReturn(cart(7L, 3)).when(cartService).addItemToCart("john", input, new CartVersion(7, 2));
+        ResponseEntity<Void> response = cartAPIController.addItemToCart(input, "\"7-2\"");
+        assertEquals("\"7-3\"", response.getHeaders().getETag());
+        assertThrows(PreconditionFailedException.class, () -> cartAPIController.addItemToCart(input, "W/\"7-2\""));
     }
 
     @Test
     void testClearCart() {
-        ResponseEntity<Void> response = cartAPIController.clearCart();
+        ResponseEntity<Void> response = cartAPIController.clearCart(null);
         assertEquals(204, response.getStatusCodeValue());
-        verify(cartService).clearCart("john");
+        verify(cartService).clearCart("john", null);
     }
 
     @Test
@@ -83,21 +97,21 @@ class CartAPIControllerTest {
             }
         };
 
-        Cart<CartItem> cart = new Cart<>();
-        cart.setUserId("john");
+        Cart<CartItem> cart = cart(7L, 2);
         cart.setItems(List.of(item));
 
         Product product = new Product("Laptop", "sku123", "A test laptop",
                 BigDecimal.valueOf(1000), "imageUrl");
 
         doReturn(cart).when(cartService).getCart("john");
-        doReturn(Optional.of(product))
+        doReturn(Map.of("sku123", product))
                 .when(productService)
-                .getProduct("sku123");
+                .getProducts(List.of("sku123"));
 
-        ResponseEntity<CartResponse> response = cartAPIController.getCart();
+        ResponseEntity<CartResponse> response = cartAPIController.getCart("\"7-1\"");
 
         assertEquals(200, response.getStatusCodeValue());
+        assertEquals("\"7-2\"", response.getHeaders().getETag());
         CartResponse cartResponse = response.getBody();
         assertNotNull(cartResponse);
         assertEquals(1, cartResponse.items().size());
@@ -107,13 +121,52 @@ class CartAPIControllerTest {
         assertEquals(2, itemResponse.quantity());
         assertEquals(BigDecimal.valueOf(1000), itemResponse.price());
         assertEquals("Laptop", itemResponse.name());
+        verify(productService, never()).getProduct(any());
+    }
+
+    @Test
+    void testGetCartNotModified() {
+        doReturn(cart(7L, 2)).when(cartService).getCart("john");
+
+        ResponseEntity<CartResponse> response = cartAPIController.getCart("\"6-2\", W/\"7-2\"");
+
+        assertEquals(304, response.getStatusCodeValue());
+        assertNull(response.getBody());
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void testUpdateItems() {
+        var operations = List.of(new CartItemOperation(CartItemOperation.Action.ADD, "sku123", 2));
+        Cart<CartItem> cart = cart(7L, 1);
+        cart.setItems(List.of(new StubCartItem()));
+        Product product = new Product("Laptop", "sku123", "A test laptop",
+                BigDecimal.valueOf(1000), "imageUrl");
+
+        doReturn(cart).when(cartService).updateItems("john", operations, null);
+        doReturn(Map.of("sku123", product)).when(productService).getProducts(List.of("sku123"));
+
+        ResponseEntity<CartResponse> response = cartAPIController.updateItems(new CartItemOperationsInput(operations), null);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(1, response.getBody().items().size());
+        assertEquals(2, response.getBody().items().get(0).quantity());
     }
 
     @Test
     void testRemoveItemFromCart() {
-        ResponseEntity<Void> response = cartAPIController.removeItemFromCart("sku123");
+        doReturn(cart(7L, 2)).when(cartService).removeItemFromCart("john", "sku123", null);
+        ResponseEntity<Void> response = cartAPIController.removeItemFromCart("sku123", null);
         assertEquals(204, response.getStatusCodeValue());
-        verify(cartService).removeItemFromCart("john", "sku123");
+        assertEquals("\"7-2\"", response.getHeaders().getETag());
+    }
+
+    private static Cart<CartItem> cart(Long id, long version) {
+        Cart<CartItem> cart = new Cart<>();
+        cart.setId(id);
+        cart.setUserId("john");
+        cart.setVersion(version);
+        return cart;
     }
 
     static class StubCartItem extends CartItem {
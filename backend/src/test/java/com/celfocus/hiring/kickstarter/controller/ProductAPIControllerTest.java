@@ -0,0 +1,64 @@
+package com.celfocus.hiring.kickstarter.controller;
+
+import com.celfocus.hiring.kickstarter.api.ProductAPIController;
+import com.celfocus.hiring.kickstarter.api.ProductService;
+import com.celfocus.hiring.kickstarter.api.dto.ProductResponse;
+import com.celfocus.hiring.kickstarter.domain.Product;
+import com.celfocus.hiring.kickstarter.search.ProductHits;
+import com.celfocus.hiring.kickstarter.search.ProductQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductAPIControllerTest {
+
+    @Mock
+    private ProductService productService;
+
+    @InjectMocks
+    private ProductAPIController productAPIController;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testSearchProductsKeepsRankingOrder() {
+        ProductQuery query = new ProductQuery("backpack", null, BigDecimal.ONE, null, 2, null);
+        when(productService.search(query)).thenReturn(new ProductHits(List.of("SKU2", "SKU1"), 5, Map.of("bags", 5), "next"));
+        when(productService.getProducts(List.of("SKU2", "SKU1"))).thenReturn(Map.of(
+                "SKU1", new Product("Backpack", "SKU1", "A backpack", new BigDecimal("80.00"), "1.jpg", 3),
+                "SKU2", new Product("Backpack charm", "SKU2", null, new BigDecimal("5.00"), "2.jpg", 7)));
+
+        var response = productAPIController.searchProducts("backpack", null, BigDecimal.ONE, null, 2, null);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(List.of("SKU2", "SKU1"), response.getBody().products().stream().map(ProductResponse::sku).toList());
+        assertEquals(new BigDecimal("5.00"), response.getBody().products().getFirst().price());
+        assertEquals(5, response.getBody().total());
+        assertEquals(Map.of("bags", 5), response.getBody().categories());
+        assertEquals("next", response.getBody().nextCursor());
+    }
+
+    @Test
+    void testSearchProductsSkipsProductsGoneSinceIndexing() {
+        ProductQuery query = new ProductQuery(null, null, null, null, 20, null);
+        when(productService.search(query)).thenReturn(new ProductHits(List.of("SKU1"), 1, Map.of(), null));
+        when(productService.getProducts(List.of("SKU1"))).thenReturn(Map.of());
+
+        var response = productAPIController.searchProducts(null, null, null, null, 20, null);
+
+        assertTrue(response.getBody().products().isEmpty());
+        assertNull(response.getBody().nextCursor());
+    }
+}
@@ -0,0 +1,100 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+import com.celfocus.hiring.kickstarter.util.ProductsLoader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedProductCatalogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testAnswersLikeTheHeapCatalog() throws IOException {
+        ProductCatalog.Builder builder = ProductCatalog.builder();
+        try (InputStream in = new ClassPathResource("products.json").getInputStream()) {
+            ProductsLoader.readProducts(new ObjectMapper(), in, builder);
+        }
+        ProductCatalog heap = builder.build();
+        MappedProductCatalog mapped = write(heap, 42);
+
+        assertEquals(42, mapped.fingerprint());
+        assertEquals(heap.size(), mapped.size());
+        assertEquals(fields(heap.findAll()), fields(mapped.findAll()));
+        for (ProductEntity product : heap.findAll()) {
+            assertEquals(fields(List.of(product)), fields(List.of(mapped.findBySku(product.getSku()).orElseThrow())));
+            assertEquals(fields(heap.findByCategory(product.getCategory())), fields(mapped.findByCategory(product.getCategory())));
+        }
+        assertTrue(mapped.findBySku("UNKNOWN").isEmpty());
+        assertTrue(mapped.findBySku(null).isEmpty());
+        assertTrue(mapped.findByCategory("unknown").isEmpty());
+        for (String[] range : new String[][]{{"100", "110"}, {"9.85", "9.85"}, {"9.851", "22.3"}, {null, "15"}, {"500", null}, {"20", "10"}}) {
+            BigDecimal min = range[0] == null ? null : new BigDecimal(range[0]);
+            BigDecimal max = range[1] == null ? null : new BigDecimal(range[1]);
+            assertEquals(fields(heap.findByPriceBetween(min, max)), fields(mapped.findByPriceBetween(min, max)));
+        }
+    }
+
+    @Test
+    void testKeepsMissingFieldsAndPriceScales() throws IOException {
+        ProductEntity bare = product("SKU-Ü", null);
+        ProductEntity priced = product("SKU-1", new BigDecimal("22.3"));
+        priced.setName("Café 😀");
+        priced.setCategory("bags");
+        MappedProductCatalog mapped = write(ProductCatalog.builder().add(bare).add(priced).add(product("SKU-2", new BigDecimal("1.125"))).build(), 0);
+
+        ProductEntity first = mapped.findBySku("SKU-Ü").orElseThrow();
+        assertNull(first.getName());
+        assertNull(first.getPrice());
+        assertNull(first.getCategory());
+        ProductEntity second = mapped.findBySku("SKU-1").orElseThrow();
+        assertEquals("Café 😀", second.getName());
+        assertEquals(new BigDecimal("22.3"), second.getPrice());
+        assertEquals(List.of("SKU-Ü", "SKU-1", "SKU-2"), mapped.findAll().stream().map(ProductEntity::getSku).toList());
+        assertEquals(List.of("SKU-2", "SKU-1"), mapped.findByPriceBetween(null, null).stream().map(ProductEntity::getSku).toList());
+    }
+
+    @Test
+    void testEmptyCatalogAndForeignFile() throws IOException {
+        MappedProductCatalog empty = write(ProductCatalog.builder().build(), 0);
+
+        assertEquals(0, empty.size());
+        assertTrue(empty.findBySku("SKU").isEmpty());
+        assertTrue(empty.findByPriceBetween(null, null).isEmpty());
+        Path foreign = Files.writeString(directory.resolve("foreign.bin"), "[{\"sku\": \"SKU1\"}]");
+        assertThrows(IllegalStateException.class, () -> MappedProductCatalog.open(foreign));
+    }
+
+    private MappedProductCatalog write(ProductCatalog catalog, long fingerprint) throws IOException {
+        Path file = directory.resolve("catalog-" + fingerprint + "-" + catalog.size() + ".bin");
+        MappedProductCatalog.write(catalog, fingerprint, file);
+        return MappedProductCatalog.open(file);
+    }
+
+    private static ProductEntity product(String sku, BigDecimal price) {
+        ProductEntity product = new ProductEntity();
+        product.setSku(sku);
+        product.setPrice(price);
+        product.setQuantity(3);
+        return product;
+    }
+
+    private static List<List<Object>> fields(List<ProductEntity> products) {
+        return products.stream()
+                .map(product -> java.util.Arrays.<Object>asList(product.getSku(), product.getName(), product.getDescription(),
+                        product.getCategory(), product.getimageUrl(), product.getPrice(), product.getQuantity()))
+                .toList();
+    }
+}
@@ -0,0 +1,125 @@
+package com.celfocus.hiring.kickstarter.db.repo;
+
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCatalogSourceTest {
+
+    private static final String PRODUCTS = """
+            {"sku": "SKU1", "name": "Backpack", "price": 10.50, "category": "bags", "quantity": 5}
+            {"sku": "SKU2", "name": "Shirt", "price": 20.00, "category": "clothing", "quantity": 7}
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testLoadsJsonArrayAndNewlineDelimitedFiles() throws IOException {
+        Path array = Files.writeString(directory.resolve("products.json"), """
+                [{"sku": "SKU1", "price": 10.50}, {"sku": "SKU2", "price": 20.00}, {"sku": "SKU1", "price": 1}]
+                """);
+        Path lines = Files.writeString(directory.resolve("products.ndjson"), PRODUCTS);
+
+        ProductCatalog fromArray = source(array, null).current();
+        ProductCatalog fromLines = source(lines, null).current();
+
+        assertEquals(2, fromArray.size());
+        assertEquals(new BigDecimal("10.50"), fromArray.findBySku("SKU1").orElseThrow().getPrice());
+        assertEquals(2, fromLines.size());
+        assertEquals("Shirt", fromLines.findBySku("SKU2").orElseThrow().getName());
+    }
+
+    @Test
+    void testNewDeltaIsAppliedOnTopOfCurrentCatalog() throws IOException {
+        Path deltas = Files.createDirectory(directory.resolve("deltas"));
+        ProductCatalogSource source = source(Files.writeString(directory.resolve("products.ndjson"), PRODUCTS), deltas);
+        ProductCatalog before = source.current();
+        assertTrue(source.reload().isEmpty());
+
+        Files.writeString(deltas.resolve("001.ndjson"), """
+                {"sku": "SKU1", "price": 9.99}
+                {"sku": "SKU2", "deleted": true}
+                {"sku": "SKU3", "name": "Watch", "price": 99, "quantity": 3}
+                """);
+        var change = source.reload().orElseThrow();
+
+        assertSame(before, change.previous());
+        assertSame(source.current(), change.current());
+        ProductEntity updated = source.current().findBySku("SKU1").orElseThrow();
+        assertEquals(new BigDecimal("9.99"), updated.getPrice());
+        assertEquals("Backpack", updated.getName());
+        assertEquals(5, updated.getQuantity());
+        assertTrue(source.current().findBySku("SKU2").isEmpty());
+        assertEquals(3, source.current().findBySku("SKU3").orElseThrow().getQuantity());
+        assertEquals(new BigDecimal("10.50"), before.findBySku("SKU1").orElseThrow().getPrice());
+        assertTrue(source.reload().isEmpty());
+    }
+
+    @Test
+    void testChangedCatalogFileIsReadAgainWithDeltas() throws IOException {
+        Path deltas = Files.createDirectory(directory.resolve("deltas"));
+        Path products = Files.writeString(directory.resolve("products.ndjson"), PRODUCTS);
+        Files.writeString(deltas.resolve("001.json"), "[{\"sku\": \"SKU1\", \"quantity\": 1}]");
+        ProductCatalogSource source = source(products, deltas);
+        assertEquals(1, source.current().findBySku("SKU1").orElseThrow().getQuantity());
+
+        Files.writeString(products, PRODUCTS.replace("Backpack", "Rucksack"));
+        Files.setLastModifiedTime(products, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+
+        assertTrue(source.reload().isPresent());
+        ProductEntity product = source.current().findBySku("SKU1").orElseThrow();
+        assertEquals("Rucksack", product.getName());
+        assertEquals(1, product.getQuantity());
+    }
+
+    @Test
+    void testUnreadableDeltaKeepsCurrentCatalog() throws IOException {
+        Path deltas = Files.createDirectory(directory.resolve("deltas"));
+        ProductCatalogSource source = source(Files.writeString(directory.resolve("products.ndjson"), PRODUCTS), deltas);
+        ProductCatalog before = source.current();
+
+        Files.writeString(deltas.resolve("001.ndjson"), "{\"sku\": \"SKU1\", \"price\": ");
+
+        assertTrue(source.reload().isEmpty());
+        assertSame(before, source.current());
+    }
+
+    @Test
+    void testSnapshotIsMappedAgainUntilFilesChange() throws IOException {
+        Path deltas = Files.createDirectory(directory.resolve("deltas"));
+        Path products = Files.writeString(directory.resolve("products.ndjson"), PRODUCTS);
+        Path snapshot = directory.resolve("catalog.bin");
+        ProductCatalogSource first = new ProductCatalogSource(new ObjectMapper(), new FileSystemResource(products), deltas, snapshot);
+        Files.setLastModifiedTime(snapshot, FileTime.fromMillis(0));
+
+        ProductCatalogSource second = new ProductCatalogSource(new ObjectMapper(), new FileSystemResource(products), deltas, snapshot);
+
+        assertInstanceOf(MappedProductCatalog.class, second.current());
+        assertEquals(0, Files.getLastModifiedTime(snapshot).toMillis());
+        assertEquals("Backpack", second.current().findBySku("SKU1").orElseThrow().getName());
+
+        ProductCatalog before = second.current();
+        Files.writeString(deltas.resolve("001.ndjson"), "{\"sku\": \"SKU1\", \"name\": \"Rucksack\"}");
+        assertTrue(second.reload().isPresent());
+
+        assertEquals("Rucksack", second.current().findBySku("SKU1").orElseThrow().getName());
+        assertEquals("Backpack", before.findBySku("SKU1").orElseThrow().getName());
+        assertNotEquals(((MappedProductCatalog) before).fingerprint(), ((MappedProductCatalog) second.current()).fingerprint());
+        assertEquals("Backpack", first.current().findBySku("SKU1").orElseThrow().getName());
+    }
+
+    private static ProductCatalogSource source(Path location, Path deltas) {
+        return new ProductCatalogSource(new ObjectMapper(), new FileSystemResource(location), deltas, null);
+    }
+}
@@ -4,6 +4,8 @@ import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,4 +23,32 @@ class ProductRepositoryTest {
         assertTrue(product.isPresent());
         assertEquals("Slim-fitting style, contrast raglan long sleeve, three-button henley placket, light weight & soft fabric for breathable and comfortable wearing. And Solid stitched shirts with round neck made for durability and a great fit for casual fashion wear and diehard baseball fans. The Henley style round neckline includes a three-button placket.", product.get().getDescription());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindProductBySkuUnknown() {
+        ProductRepository productRepository = ProductRepository.create(new ObjectMapper());
+
+        assertTrue(productRepository.findBySku("UNKNOWN").isEmpty());
+        assertTrue(productRepository.findBySku(null).isEmpty());
+    }
+
+    @Test
+    void testFindProductsByCategory() {
+        ProductRepository productRepository = ProductRepository.create(new ObjectMapper());
+
+        List<ProductEntity> jewelery = productRepository.findByCategory("jewelery");
+
+        assertEquals(4, jewelery.size());
+        assertTrue(jewelery.stream().allMatch(product -> "jewelery".equals(product.getCategory())));
+    }
+
+    @Test
+    void testFindProductsByPriceBetween() {
+        ProductRepository productRepository = ProductRepository.create(new ObjectMapper());
+
+        List<ProductEntity> products = productRepository.findByPriceBetween(new BigDecimal("100"), new BigDecimal("110"));
+
+        assertEquals(List.of("SKUTEST10", "SKUTEST11", "SKUTEST1"),
+                products.stream().map(ProductEntity::getSku).toList());
+    }
+}
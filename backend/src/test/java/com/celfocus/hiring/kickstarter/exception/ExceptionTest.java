@@ -3,16 +3,23 @@ package com.celfocus.hiring.kickstarter.exception;
 import com.celfocus.hiring.kickstarter.api.CartAPIController;
 import com.celfocus.hiring.kickstarter.api.CartService;
 import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 /**
@@ -45,7 +52,7 @@ public class ExceptionTest {
         when(cartService.getCart("john"))
                 .thenThrow(new CartNotFoundException("Cart not found"));
 
-        assertThrows(CartNotFoundException.class, () -> cartAPIController.getCart());
+        assertThrows(CartNotFoundException.class, () -> cartAPIController.getCart(null));
     }
 
     @Test
@@ -53,9 +60,9 @@ public class ExceptionTest {
         CartItemInput input = new CartItemInput("invalidSku");
 
         doThrow(new ProductDoesNotExistException("Product does not exist"))
-                .when(cartService).addItemToCart("john", input);
+                .when(cartService).addItemToCart("john", input, null);
 
-        assertThrows(ProductDoesNotExistException.class, () -> cartAPIController.addItemToCart(input));
+        assertThrows(ProductDoesNotExistException.class, () -> cartAPIController.addItemToCart(input, null));
     }
 
     @Test
@@ -63,24 +70,71 @@ public class ExceptionTest {
         CartItemInput input = new CartItemInput("sku123");
 
         doThrow(new InsufficientStockException("Out of stock"))
-                .when(cartService).addItemToCart("john", input);
+                .when(cartService).addItemToCart("john", input, null);
 
-        assertThrows(InsufficientStockException.class, () -> cartAPIController.addItemToCart(input));
+        assertThrows(InsufficientStockException.class, () -> cartAPIController.addItemToCart(input, null));
     }
 
     @Test
     void testRemoveItemFromCartThrowsItemNotFoundException() {
         doThrow(new ItemNotFoundException("Item not found in cart"))
-                .when(cartService).removeItemFromCart("john", "sku123");
+                .when(cartService).removeItemFromCart("john", "sku123", null);
 
-        assertThrows(ItemNotFoundException.class, () -> cartAPIController.removeItemFromCart("sku123"));
+        assertThrows(ItemNotFoundException.class, () -> cartAPIController.removeItemFromCart("sku123", null));
     }
 
     @Test
     void testClearCartThrowsCartNotFoundException() {
         doThrow(new CartNotFoundException("Cart not found"))
-                .when(cartService).clearCart("john");
+                .when(cartService).clearCart("john", null);
+
+        assertThrows(CartNotFoundException.class, () -> cartAPIController.clearCart(null));
+    }
+
+    @Test
+    void testBusinessExceptionsHaveNoStackTrace() {
+        assertEquals(0, new CartNotFoundException("Cart not found").getStackTrace().length);
+        assertEquals(0, new InsufficientStockException("Out of stock").getStackTrace().length);
+    }
+
+    @Test
+    void testProblemResponseIsRenderedOnce() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ProblemResponses problemResponses = new ProblemResponses(objectMapper);
+
+        var first = problemResponses.of(new CartNotFoundException("Cart not found"));
+        var second = problemResponses.of(new CartNotFoundException("Cart not found"));
+
+        assertEquals(404, first.getStatusCode().value());
+        assertEquals(MediaType.APPLICATION_PROBLEM_JSON, first.getHeaders().getContentType());
+        assertSame(first.getBody(), second.getBody());
+        var body = objectMapper.readTree(first.getBody());
+        assertEquals(404, body.get("status").asInt());
+        assertEquals("Not Found", body.get("title").asText());
+        assertEquals("Cart not found", body.get("detail").asText());
+        assertEquals("Cart not found", body.get("error").asText());
+        assertEquals(409, problemResponses.of(new InsufficientStockException("Out of stock")).getStatusCode().value());
+    }
+
+    @Test
+    void testExhaustedConcurrencyFailureIsConflict() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        GlobalExceptionHandler handler = new GlobalExceptionHandler(Duration.ofSeconds(10), new ProblemResponses(objectMapper));
+
+        var response = handler.handleConcurrencyFailure(new OptimisticLockingFailureException("Row was updated"));
+
+        assertEquals(409, response.getStatusCode().value());
+        assertEquals("Conflict", objectMapper.readTree(response.getBody()).get("title").asText());
+    }
+
+    @Test
+    void testExhaustedDuplicateKeyIsConflict() throws Exception {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        GlobalExceptionHandler handler = new GlobalExceptionHandler(Duration.ofSeconds(10), new ProblemResponses(objectMapper));
+
+        var response = handler.handleConcurrencyFailure(new DuplicateKeyException("Cart already exists"));
 
-        assertThrows(CartNotFoundException.class, () -> cartAPIController.clearCart());
+        assertEquals(409, response.getStatusCode().value());
+        assertEquals("Conflict", objectMapper.readTree(response.getBody()).get("title").asText());
     }
 }
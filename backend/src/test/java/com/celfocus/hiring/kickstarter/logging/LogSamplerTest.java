@@ -0,0 +1,33 @@
+package com.celfocus.hiring.kickstarter.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogSamplerTest {
+
+    @Test
+    void testOnlyFirstOccurrencePerIntervalIsLogged() {
+        var sampler = new LogSampler(Duration.ofHours(1));
+
+        assertEquals(0, sampler.sample("CartNotFoundException"));
+        assertEquals(-1, sampler.sample("CartNotFoundException"));
+        assertEquals(-1, sampler.sample("CartNotFoundException"));
+        assertEquals(0, sampler.sample("ItemNotFoundException"));
+    }
+
+    @Test
+    void testSuppressedCountIsReportedWithNextSample() throws InterruptedException {
+        var sampler = new LogSampler(Duration.ofMillis(20));
+
+        assertEquals(0, sampler.sample("CartNotFoundException"));
+        assertEquals(-1, sampler.sample("CartNotFoundException"));
+        assertEquals(-1, sampler.sample("CartNotFoundException"));
+        Thread.sleep(30);
+
+        assertEquals(2, sampler.sample("CartNotFoundException"));
+        assertEquals(-1, sampler.sample("CartNotFoundException"));
+    }
+}
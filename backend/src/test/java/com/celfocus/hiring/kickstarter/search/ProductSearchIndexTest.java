@@ -0,0 +1,126 @@
+package com.celfocus.hiring.kickstarter.search;
+
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalog;
+import com.celfocus.hiring.kickstarter.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = ProductSearchIndex.build(ProductCatalog.builder()
+            .add(product("SKU1", "Leather backpack", "A backpack for the city", "bags", "80.00"))
+            .add(product("SKU2", "City tote", "Canvas bag, fits a laptop and a backpack strap", "bags", "25.50"))
+            .add(product("SKU3", "Crème jacket", "Light jacket for the city", "clothing", "120.00"))
+            .add(product("SKU4", "Rain jacket", "Waterproof", "clothing", "60.00"))
+            .add(product("SKU5", "Backpack charm", null, "accessories", null))
+            .build());
+
+    @Test
+    void testTokensAreLowerCaseWordsWithoutAccents() {
+        assertEquals(List.of("creme", "brulee", "2", "pack"), ProductSearchIndex.tokens("Crème-Brûlée, 2 PACK!"));
+        assertEquals(List.of(), ProductSearchIndex.tokens("  "));
+    }
+
+    @Test
+    void testEveryWordMustMatchAndNameRanksFirst() {
+        List<String> backpacks = search("backpack", null, null, null).skus();
+        assertEquals(3, backpacks.size());
+        assertEquals("SKU2", backpacks.get(2));
+        assertEquals(List.of("SKU1", "SKU2"), search("city backpack", null, null, null).skus());
+        assertEquals(List.of("SKU3"), search("creme JACKET", null, null, null).skus());
+        assertEquals(List.of(), search("backpack umbrella", null, null, null).skus());
+    }
+
+    @Test
+    void testFacetsIgnoreTheCategoryFilter() {
+        ProductHits hits = search("backpack", "bags", null, null);
+
+        assertEquals(List.of("SKU1", "SKU2"), hits.skus());
+        assertEquals(2, hits.total());
+        assertEquals(Map.of("bags", 2, "accessories", 1), hits.categories());
+        assertEquals(List.of("bags", "clothing", "accessories"), List.copyOf(search(null, null, null, null).categories().keySet()));
+        assertEquals(0, search(null, "unknown", null, null).total());
+    }
+
+    @Test
+    void testPriceRangeExcludesUnpricedProducts() {
+        ProductHits hits = search(null, null, new BigDecimal("25.50"), new BigDecimal("80"));
+
+        assertEquals(List.of("SKU1", "SKU2", "SKU4"), hits.skus());
+        assertEquals(Map.of("bags", 2, "clothing", 1), hits.categories());
+        assertEquals(List.of("SKU3"), search("jacket", null, new BigDecimal("100"), null).skus());
+    }
+
+    @Test
+    void testCursorWalksEveryResultOnce() {
+        for (String text : new String[]{null, "backpack", "city"}) {
+            for (String category : new String[]{null, "bags"}) {
+                List<String> all = search(text, category, null, null).skus();
+                List<String> paged = new ArrayList<>();
+                String cursor = null;
+                do {
+                    ProductHits page = index.search(new ProductQuery(text, category, null, null, 2, cursor));
+                    assertTrue(page.skus().size() <= 2);
+                    assertEquals(all.size(), page.total());
+                    paged.addAll(page.skus());
+                    cursor = page.nextCursor();
+                } while (cursor != null);
+                assertEquals(all, paged);
+            }
+        }
+    }
+
+    @Test
+    void testCursorIsOnlyValidForItsCatalog() {
+        String cursor = index.search(new ProductQuery(null, null, null, null, 1, null)).nextCursor();
+        ProductSearchIndex other = ProductSearchIndex.build(ProductCatalog.builder()
+                .add(product("SKU1", "Backpack", null, null, "1.00")).add(product("SKU2", "Tote", null, null, "2.00")).build());
+
+        assertThrows(BadRequestException.class, () -> other.search(new ProductQuery(null, null, null, null, 1, cursor)));
+        assertThrows(BadRequestException.class, () -> index.search(new ProductQuery(null, null, null, null, 1, "not-a-cursor")));
+        assertEquals(List.of("SKU2"), index.search(new ProductQuery(null, null, null, null, 1, cursor)).skus());
+    }
+
+    @Test
+    void testBroadWordPagesLikeAFullScan() {
+        var catalog = ProductCatalog.builder();
+        for (int i = 0; i < 3000; i++) {
+            catalog.add(product("SKU" + i, "Item " + i, "item ".repeat(i % 7) + "x".repeat(i % 5), "c" + i % 3, "1.00"));
+        }
+        ProductSearchIndex broad = ProductSearchIndex.build(catalog.build());
+
+        for (String category : new String[]{null, "c1", "unknown"}) {
+            String cursor = null;
+            int pages = 0;
+            do {
+                ProductHits page = broad.search(new ProductQuery("item", category, null, null, 50, cursor));
+                ProductHits scanned = broad.search(new ProductQuery("item", category, BigDecimal.ZERO, null, 50, cursor));
+                assertEquals(scanned, page);
+                cursor = page.nextCursor();
+                pages++;
+            } while (cursor != null);
+            assertEquals(category == null ? 60 : category.equals("c1") ? 20 : 1, pages);
+        }
+    }
+
+    private ProductHits search(String text, String category, BigDecimal minPrice, BigDecimal maxPrice) {
+        return index.search(new ProductQuery(text, category, minPrice, maxPrice, 100, null));
+    }
+
+    private static ProductEntity product(String sku, String name, String description, String category, String price) {
+        ProductEntity product = new ProductEntity();
+        product.setSku(sku);
+        product.setName(name);
+        product.setDescription(description);
+        product.setCategory(category);
+        product.setPrice(price == null ? null : new BigDecimal(price));
+        return product;
+    }
+}
@@ -0,0 +1,67 @@
+package com.celfocus.hiring.kickstarter.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JwtService jwtService = new JwtService(meterRegistry);
+
+    @Test
+    void testVerifyValidToken() {
+        String token = jwtService.generateToken("john");
+
+        Optional<VerifiedToken> verified = jwtService.verify(token);
+
+        assertTrue(verified.isPresent());
+        assertEquals("john", verified.get().username());
+        assertTrue(verified.get().expiresAt().isAfter(Instant.now()));
+        assertEquals("john", jwtService.extractUsername(token));
+        assertTrue(jwtService.validateToken(token));
+    }
+
+    @Test
+    void testVerifyReusesVerifiedToken() {
+        String token = jwtService.generateToken("john");
+
+        VerifiedToken first = jwtService.verify(token).orElseThrow();
+        VerifiedToken second = jwtService.verify(token).orElseThrow();
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void testVerifyRejectsTamperedToken() {
+        String token = jwtService.generateToken("john");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertTrue(jwtService.verify(tampered).isEmpty());
+        assertFalse(jwtService.validateToken("not-a-jwt"));
+    }
+
+    @Test
+    void testVerifyRejectsTokenFromAnotherKey() {
+        String foreignToken = new JwtService(new SimpleMeterRegistry()).generateToken("john");
+
+        assertTrue(jwtService.verify(foreignToken).isEmpty());
+    }
+
+    @Test
+    void testVerificationTimeIsRecordedPerResult() {
+        String token = jwtService.generateToken("john");
+
+        jwtService.verify(token);
+        jwtService.verify(token);
+        jwtService.verify("not-a-jwt");
+
+        assertEquals(1, meterRegistry.get("jwt.verify").tag("result", "verified").timer().count());
+        assertEquals(1, meterRegistry.get("jwt.verify").tag("result", "cached").timer().count());
+        assertEquals(1, meterRegistry.get("jwt.verify").tag("result", "rejected").timer().count());
+    }
+}
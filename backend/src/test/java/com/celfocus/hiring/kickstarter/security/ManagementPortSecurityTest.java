@@ -0,0 +1,55 @@
+package com.celfocus.hiring.kickstarter.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Serves actuator on its own port, where only the Prometheus scrape is open.
+ */
+@AutoConfigureObservability(tracing = false)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "management.server.port=0")
+class ManagementPortSecurityTest {
+
+    @LocalServerPort
+    private int serverPort;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void testPrometheusNeedsNoTokenOnlyOnTheManagementPort() throws Exception {
+        assertEquals(200, get(managementPort, "/actuator/prometheus", null));
+        assertEquals(401, get(managementPort, "/actuator/caches", null));
+        assertEquals(401, get(serverPort, "/actuator/prometheus", null));
+    }
+
+    @Test
+    void testOtherActuatorEndpointsAcceptAToken() throws Exception {
+        assertEquals(200, get(managementPort, "/actuator/caches", jwtService.generateToken("john")));
+    }
+
+    private int get(int port, String path, String token) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,50 @@
+package com.celfocus.hiring.kickstarter.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The default deployment: the API and actuator share one port.
+ */
+@AutoConfigureObservability(tracing = false)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class SecurityConfigTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void testPrometheusNeedsAToken() throws Exception {
+        assertEquals(401, get("/actuator/prometheus", null));
+        assertEquals(200, get("/actuator/prometheus", jwtService.generateToken("john")));
+    }
+
+    @Test
+    void testCartsNeedATokenAndProductsDoNot() throws Exception {
+        assertEquals(401, get("/api/v1/carts", null));
+        assertEquals(200, get("/api/v1/products?q=product", null));
+    }
+
+    private int get(String path, String token) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,124 @@
+package com.celfocus.hiring.kickstarter.service;
+
+import com.celfocus.hiring.kickstarter.api.CartService;
+import com.celfocus.hiring.kickstarter.api.InventoryService;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemOperation;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemOperation.Action;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.exception.PreconditionFailedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers one cart from many threads against the database, with row locking (the default).
+ * {@link OptimisticCartConcurrencyTest} runs the same checks with optimistic locking.
+ */
+@SpringBootTest
+class CartConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int CHANGES_PER_THREAD = 5;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Test
+    void testConcurrentAddsAreNeverLost() throws Exception {
+        String user = "stress-" + UUID.randomUUID();
+        int availableBefore = inventoryService.getAvailable("SKUTEST19") + inventoryService.getAvailable("SKUTEST8");
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < CHANGES_PER_THREAD; i++) {
+                if (thread % 2 == 0) {
+                    cartService.addItemToCart(user, new CartItemInput("SKUTEST19"), null);
+                } else {
+                    cartService.updateItems(user, List.of(new CartItemOperation(Action.ADD, "SKUTEST8", 1)), null);
+                }
+            }
+            return null;
+        });
+
+        var cart = cartService.getCart(user);
+        assertEquals(THREADS / 2 * CHANGES_PER_THREAD, quantity(cart.getItems(), "SKUTEST19"));
+        assertEquals(THREADS / 2 * CHANGES_PER_THREAD, quantity(cart.getItems(), "SKUTEST8"));
+        assertEquals(THREADS * CHANGES_PER_THREAD, cart.getVersion());
+        assertEquals(availableBefore - THREADS * CHANGES_PER_THREAD,
+                inventoryService.getAvailable("SKUTEST19") + inventoryService.getAvailable("SKUTEST8"));
+        cartService.clearCart(user, null);
+    }
+
+    @Test
+    void testOnlyOneConditionalChangeWins() throws Exception {
+        String user = "stress-" + UUID.randomUUID();
+        var version = CartVersion.of(cartService.addItemToCart(user, new CartItemInput("SKUTEST19"), null));
+
+        var outcomes = runConcurrently(thread -> {
+            try {
+                cartService.updateItems(user, List.of(new CartItemOperation(Action.SET, "SKUTEST19", thread + 2)), version);
+                return true;
+            } catch (PreconditionFailedException e) {
+                return false;
+            }
+        });
+
+        assertEquals(1, outcomes.stream().filter(won -> won).count());
+        var cart = cartService.getCart(user);
+        assertEquals(version.next(), CartVersion.of(cart));
+        cartService.clearCart(user, null);
+    }
+
+    private static int quantity(List<? extends CartItem> items, String sku) {
+        return items.stream().filter(item -> sku.equals(item.getItemId())).mapToInt(CartItem::getQuantity).sum();
+    }
+
+    private static <T> List<T> runConcurrently(ThreadTask<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int index = thread;
+                futures.add(executor.submit((Callable<T>) () -> {
+                    start.await();
+                    return task.run(index);
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get(30, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    throw new AssertionError("Concurrent change failed", e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    interface ThreadTask<T> {
+        T run(int thread) throws Exception;
+    }
+}
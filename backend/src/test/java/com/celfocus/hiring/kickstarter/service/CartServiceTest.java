@@ -5,135 +5,299 @@ package com.celfocus.hiring.kickstarter.service;
  */
 
 import com.celfocus.hiring.kickstarter.api.CartService;
+import com.celfocus.hiring.kickstarter.api.InventoryService;
 import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
-import com.celfocus.hiring.kickstarter.db.entity.CartEntity;
-import com.celfocus.hiring.kickstarter.db.entity.CartItemEntity;
-import com.celfocus.hiring.kickstarter.db.entity.CartItemPK;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemOperation;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemOperation.Action;
 import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
-import com.celfocus.hiring.kickstarter.db.repo.CartItemRepository;
-import com.celfocus.hiring.kickstarter.db.repo.CartRepository;
 import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
+import com.celfocus.hiring.kickstarter.domain.Cart;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
 import com.celfocus.hiring.kickstarter.exception.CartNotFoundException;
 import com.celfocus.hiring.kickstarter.exception.InsufficientStockException;
 import com.celfocus.hiring.kickstarter.exception.ItemNotFoundException;
+import com.celfocus.hiring.kickstarter.exception.PreconditionFailedException;
 import com.celfocus.hiring.kickstarter.exception.ProductDoesNotExistException;
+import com.celfocus.hiring.kickstarter.store.CartStore;
+import com.celfocus.hiring.kickstarter.store.InMemoryCartStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+/**
+ * Runs the service against a real in-memory store; the JPA mapping is covered by {@code JpaCartStoreTest}.
+ */
 class CartServiceTest {
     @Mock
-    private CartRepository cartRepository;
+    private ProductRepository productRepository;
 
     @Mock
-    private CartItemRepository cartItemRepository;
+    private InventoryService inventoryService;
 
     @Mock
-    private ProductRepository productRepository;
+    private CacheManager cacheManager;
+
+    private CartStore cartStore;
 
-    @InjectMocks
     private CartService cartService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(inventoryService.reserve(any(), anyInt())).thenReturn(true);
+        cartStore = spy(new InMemoryCartStore(4, false, null));
+        cartService = new CartService(cartStore, productRepository, inventoryService, cacheManager);
     }
 
     @Test
     void testAddNewItemToCartSuccess() {
-        CartEntity cart = new CartEntity();
-        cart.setId(1L);
-        cart.setUserId("john");
+        when(productRepository.findBySku("sku123")).thenReturn(Optional.of(product("sku123", 3)));
+
+        var cart = cartService.addItemToCart("john", new CartItemInput("sku123"), null);
+
+        assertEquals(1, cart.getItems().get(0).getQuantity());
+        verify(cartStore).addItem(eq("john"), isNull(), eq("sku123"), any(), eq(1), eq(3), any(Date.class));
+        verify(inventoryService).reserve("sku123", 1);
+    }
 
-        ProductEntity productEntity = new ProductEntity();
-        productEntity.setSku("sku123");
-        productEntity.setQuantity(3);
+    @Test
+    void testAddItemToCartUpdatesCachedCart() {
+        CartItem cachedItem = new CartItem();
+        cachedItem.setItemId("sku123");
+        cachedItem.setQuantity(1);
+        Cart<CartItem> cachedCart = new Cart<>();
+        cachedCart.setId(1L);
+        cachedCart.setUserId("john");
+        cachedCart.setVersion(1);
+        cachedCart.setItems(List.of(cachedItem));
+        Cache cache = mock(Cache.class);
+        when(cacheManager.getCache("cart")).thenReturn(cache);
+        when(cache.get("john", Cart.class)).thenReturn(cachedCart);
+        when(productRepository.findBySku("sku123")).thenReturn(Optional.of(product("sku123", 3)));
+        givenCart("sku123", 1);
+
+        var updated = cartService.addItemToCart("john", new CartItemInput("sku123"), null);
+
+        assertEquals("john", updated.getUserId());
+        assertEquals(1, updated.getItems().size());
+        assertEquals(2, updated.getItems().get(0).getQuantity());
+        assertEquals(2, updated.getVersion());
+        assertEquals(1, cachedItem.getQuantity());
+        verify(cartStore, never()).find(any());
+    }
 
-        when(cartRepository.findByUserId("john")).thenReturn(Optional.of(cart));
-        when(productRepository.findBySku("sku123")).thenReturn(Optional.of(productEntity));
-        when(cartItemRepository.findById(any())).thenReturn(Optional.empty());
+    @Test
+    void testAddItemToCartReloadsStaleCachedCart() {
+        Cart<CartItem> cachedCart = new Cart<>();
+        cachedCart.setId(1L);
+        cachedCart.setUserId("john");
+        cachedCart.setVersion(1);
+        Cache cache = mock(Cache.class);
+        when(cacheManager.getCache("cart")).thenReturn(cache);
+        when(cache.get("john", Cart.class)).thenReturn(cachedCart);
+        when(productRepository.findBySku("sku123")).thenReturn(Optional.of(product("sku123", 3)));
+        givenCart("sku456", 1);
+        cartStore.addItem("john", null, "sku789", BigDecimal.TEN, 1, 1, new Date());
+
+        var updated = cartService.addItemToCart("john", new CartItemInput("sku123"), null);
+
+        assertEquals(3, updated.getItems().size());
+        assertEquals(3, updated.getVersion());
+    }
 
-        cartService.addItemToCart("john", new CartItemInput("sku123"));
+    @Test
+    void testChangeWithStaleVersionFails() {
+        givenCart("sku123", 2);
+        var seen = CartVersion.of(cartStore.find("john").orElseThrow());
+        cartService.removeItemFromCart("john", "sku123", seen);
 
-        verify(cartItemRepository).save(any(CartItemEntity.class));
+        assertThrows(PreconditionFailedException.class, () -> cartService.clearCart("john", seen));
+        assertTrue(cartStore.find("john").isPresent());
+        verify(inventoryService).release("sku123", 2);
     }
 
     @Test
     void testAddItemProductNotExist() {
-        when(cartRepository.findByUserId("john")).thenReturn(Optional.of(new CartEntity()));
         when(productRepository.findBySku("sku123")).thenReturn(Optional.empty());
 
         assertThrows(ProductDoesNotExistException.class, () ->
-                cartService.addItemToCart("john", new CartItemInput("sku123")));
+                cartService.addItemToCart("john", new CartItemInput("sku123"), null));
+        verifyNoInteractions(cartStore);
     }
 
     @Test
-    void testAddItemInsufficientStockNewItem() {
-        CartEntity cart = new CartEntity();
-        cart.setId(1L);
+    void testAddItemInsufficientReservableStock() {
+        when(productRepository.findBySku("sku123")).thenReturn(Optional.of(product("sku123", 3)));
+        when(inventoryService.reserve("sku123", 1)).thenReturn(false);
 
-        ProductEntity productEntity = new ProductEntity();
-        productEntity.setSku("sku123");
-        productEntity.setQuantity(0);
+        assertThrows(InsufficientStockException.class, () ->
+                cartService.addItemToCart("john", new CartItemInput("sku123"), null));
+        verifyNoInteractions(cartStore);
+    }
 
-        when(cartRepository.findByUserId("john")).thenReturn(Optional.of(cart));
-        when(productRepository.findBySku("sku123")).thenReturn(Optional.of(productEntity));
-        when(cartItemRepository.findById(any())).thenReturn(Optional.empty());
+    @Test
+    void testAddItemInsufficientStockNewItem() {
+        when(productRepository.findBySku("sku123")).thenReturn(Optional.of(product("sku123", 0)));
 
         assertThrows(InsufficientStockException.class, () ->
-                cartService.addItemToCart("john", new CartItemInput("sku123")));
+                cartService.addItemToCart("john", new CartItemInput("sku123"), null));
+        assertTrue(cartStore.find("john").isEmpty());
+    }
+
+    @Test
+    void testUpdateItemsAppliesBatch() {
+        givenCart("sku123", 2);
+        when(productRepository.findBySkuIn(List.of("sku123", "sku456")))
+                .thenReturn(List.of(product("sku123", 10), product("sku456", 10)));
+
+        var updated = cartService.updateItems("john", List.of(
+                new CartItemOperation(Action.ADD, "sku123", 3),
+                new CartItemOperation(Action.ADD, "sku456", 2),
+                new CartItemOperation(Action.REMOVE, "sku123", 1)), null);
+
+        assertEquals(2, updated.getItems().size());
+        assertEquals(4, updated.getItems().get(0).getQuantity());
+        assertEquals("sku456", updated.getItems().get(1).getItemId());
+        assertEquals(2, updated.getItems().get(1).getQuantity());
+        assertEquals(BigDecimal.TEN, updated.getItems().get(1).getPrice());
+        verify(productRepository).findBySkuIn(any());
+        verify(inventoryService).reserve("sku123", 2);
+        verify(inventoryService).reserve("sku456", 2);
+    }
+
+    @Test
+    void testUpdateItemsCreatesCart() {
+        when(productRepository.findBySkuIn(List.of("sku123"))).thenReturn(List.of(product("sku123", 10)));
+
+        var updated = cartService.updateItems("john", List.of(new CartItemOperation(Action.SET, "sku123", 3)), null);
+
+        assertEquals(3, updated.getItems().get(0).getQuantity());
+        assertEquals(3, cartStore.find("john").orElseThrow().getItems().get(0).getQuantity());
+    }
+
+    @Test
+    void testUpdateItemsSetToZeroRemovesLine() {
+        givenCart("sku123", 2);
+        when(productRepository.findBySkuIn(List.of("sku123"))).thenReturn(List.of(product("sku123", 10)));
+
+        var updated = cartService.updateItems("john", List.of(new CartItemOperation(Action.SET, "sku123", 0)), null);
+
+        assertTrue(updated.getItems().isEmpty());
+        verify(inventoryService).release("sku123", 2);
+        verify(inventoryService, never()).reserve(any(), anyInt());
+    }
+
+    @Test
+    void testUpdateItemsInsufficientStockRejectsWholeBatch() {
+        givenCart("sku123", 2);
+        when(productRepository.findBySkuIn(List.of("sku123", "sku456")))
+                .thenReturn(List.of(product("sku123", 10), product("sku456", 10)));
+        when(inventoryService.reserve("sku456", 5)).thenReturn(false);
+
+        assertThrows(InsufficientStockException.class, () -> cartService.updateItems("john", List.of(
+                new CartItemOperation(Action.SET, "sku123", 3),
+                new CartItemOperation(Action.ADD, "sku456", 5)), null));
+        var cart = cartStore.find("john").orElseThrow();
+        assertEquals(1, cart.getItems().size());
+        assertEquals(2, cart.getItems().get(0).getQuantity());
+    }
+
+    @Test
+    void testUpdateItemsProductNotExist() {
+        when(productRepository.findBySkuIn(List.of("sku123"))).thenReturn(List.of());
+
+        assertThrows(ProductDoesNotExistException.class, () ->
+                cartService.updateItems("john", List.of(new CartItemOperation(Action.ADD, "sku123", 1)), null));
+        verifyNoInteractions(inventoryService);
+    }
+
+    @Test
+    void testGetCartReturnsImmutableCart() {
+        givenCart("sku123", 2);
+        cartStore.addItem("john", null, "sku456", BigDecimal.TEN, 1, 10, new Date());
+
+        var cart = cartService.getCart("john");
+
+        assertEquals("john", cart.getUserId());
+        assertEquals(2, cart.getItems().size());
+        assertEquals("sku456", cart.getItems().get(1).getItemId());
+        assertThrows(UnsupportedOperationException.class, () -> cart.getItems().remove(0));
+    }
+
+    @Test
+    void testGetEmptyCart() {
+        cartStore.createOrUpdate("john", null, new Date(), lines -> lines);
+
+        assertTrue(cartService.getCart("john").getItems().isEmpty());
+    }
+
+    @Test
+    void testGetCartNotFound() {
+        assertThrows(CartNotFoundException.class, () -> cartService.getCart("john"));
     }
 
     @Test
     void testClearCartSuccess() {
-        CartEntity cart = new CartEntity();
-        cart.setUserId("john");
-        when(cartRepository.findByUserId("john")).thenReturn(Optional.of(cart));
+        givenCart("sku123", 2);
 
-        cartService.clearCart("john");
-        verify(cartRepository).delete(cart);
+        cartService.clearCart("john", null);
+
+        assertTrue(cartStore.find("john").isEmpty());
+        verify(inventoryService).release("sku123", 2);
     }
 
     @Test
     void testClearCartNotFound() {
-        when(cartRepository.findByUserId("john")).thenReturn(Optional.empty());
-        assertThrows(CartNotFoundException.class, () -> cartService.clearCart("john"));
+        assertThrows(CartNotFoundException.class, () -> cartService.clearCart("john", null));
     }
 
     @Test
     void testRemoveItemFromCartSuccess() {
-        CartEntity cart = new CartEntity();
-        cart.setId(1L);
-        cart.setUserId("john");
+        givenCart("sku123", 2);
 
-        when(cartRepository.findByUserId("john")).thenReturn(Optional.of(cart));
-        when(cartItemRepository.existsById(any(CartItemPK.class))).thenReturn(true);
+        var updated = cartService.removeItemFromCart("john", "sku123", null);
 
-        cartService.removeItemFromCart("john", "sku123");
-        verify(cartItemRepository).deleteById(any(CartItemPK.class));
+        assertTrue(updated.getItems().isEmpty());
+        assertTrue(cartStore.find("john").orElseThrow().getItems().isEmpty());
+        verify(inventoryService).release("sku123", 2);
     }
 
     @Test
     void testRemoveItemNotFoundInCart() {
-        CartEntity cart = new CartEntity();
-        cart.setId(1L);
-
-        when(cartRepository.findByUserId("john")).thenReturn(Optional.of(cart));
-        when(cartItemRepository.existsById(any(CartItemPK.class))).thenReturn(false);
+        givenCart("sku456", 1);
 
-        assertThrows(ItemNotFoundException.class, () -> cartService.removeItemFromCart("john", "sku123"));
+        assertThrows(ItemNotFoundException.class, () -> cartService.removeItemFromCart("john", "sku123", null));
+        assertEquals(1, cartStore.find("john").orElseThrow().getItems().size());
+        verify(inventoryService, never()).release(any(), anyInt());
     }
 
     @Test
     void testRemoveItemCartNotFound() {
-        when(cartRepository.findByUserId("john")).thenReturn(Optional.empty());
-        assertThrows(CartNotFoundException.class, () -> cartService.removeItemFromCart("john", "sku123"));
+        assertThrows(CartNotFoundException.class, () -> cartService.removeItemFromCart("john", "sku123", null));
+    }
+
+    private void givenCart(String sku, int quantity) {
+        cartStore.addItem("john", null, sku, BigDecimal.TEN, quantity, quantity, new Date());
+        clearInvocations(cartStore);
+    }
+
+    private static ProductEntity product(String sku, int quantity) {
+        ProductEntity product = new ProductEntity();
+        product.setSku(sku);
+        product.setPrice(BigDecimal.TEN);
+        product.setQuantity(quantity);
+        return product;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,105 @@
+package com.celfocus.hiring.kickstarter.service;
+
+import com.celfocus.hiring.kickstarter.api.InventoryService;
+import com.celfocus.hiring.kickstarter.db.entity.ProductEntity;
+import com.celfocus.hiring.kickstarter.db.repo.ProductCatalog;
+import com.celfocus.hiring.kickstarter.db.repo.ProductRepository;
+import com.celfocus.hiring.kickstarter.store.CartStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class InventoryServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private CartStore cartStore;
+
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ProductEntity product = new ProductEntity();
+        product.setSku("sku123");
+        product.setQuantity(100);
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(cartStore.reservedQuantities()).thenReturn(Map.of("sku123", 10));
+        inventoryService = new InventoryService(productRepository, cartStore);
+    }
+
+    @Test
+    void testStockAlreadyInCartsIsReserved() {
+        assertEquals(90, inventoryService.getAvailable("sku123"));
+    }
+
+    @Test
+    void testRestockFollowsCatalogStock() {
+        ProductCatalog previous = ProductCatalog.builder().add(product("sku123", 100)).build();
+        ProductCatalog current = ProductCatalog.builder().add(product("sku123", 120)).add(product("sku456", 4)).build();
+
+        inventoryService.restock(previous, current);
+
+        assertEquals(110, inventoryService.getAvailable("sku123"));
+        assertTrue(inventoryService.reserve("sku456", 4));
+
+        inventoryService.restock(current, ProductCatalog.builder().add(product("sku456", 4)).build());
+
+        assertFalse(inventoryService.reserve("sku123", 1));
+        assertEquals(-10, inventoryService.getAvailable("sku123"));
+    }
+
+    @Test
+    void testReserveAndRelease() {
+        assertTrue(inventoryService.reserve("sku123", 90));
+        assertFalse(inventoryService.reserve("sku123", 1));
+
+        inventoryService.release("sku123", 5);
+
+        assertEquals(5, inventoryService.getAvailable("sku123"));
+        assertFalse(inventoryService.reserve("unknown", 1));
+    }
+
+    @Test
+    void testConcurrentReservationsNeverOversell() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        for (int i = 0; i < 500; i++) {
+            executor.submit(() -> {
+                start.await();
+                if (inventoryService.reserve("sku123", 1)) {
+                    reserved.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(90, reserved.get());
+        assertEquals(0, inventoryService.getAvailable("sku123"));
+    }
+
+    private static ProductEntity product(String sku, int quantity) {
+        ProductEntity product = new ProductEntity();
+        product.setSku(sku);
+        product.setQuantity(quantity);
+        return product;
+    }
+}
@@ -0,0 +1,14 @@
+package com.celfocus.hiring.kickstarter.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Every thread writes the same cart, far more contention than a real cart sees, so changes are given more
+ * attempts than the default to win their compare-and-set.
+ */
+@TestPropertySource(properties = {
+        "kickstarter.cart.store.jpa.optimistic-locking=true",
+        "kickstarter.cart.retry.max-attempts=50"
+})
+class OptimisticCartConcurrencyTest extends CartConcurrencyTest {
+}
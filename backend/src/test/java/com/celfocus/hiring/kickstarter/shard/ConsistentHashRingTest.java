@@ -0,0 +1,49 @@
+package com.celfocus.hiring.kickstarter.shard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final int USERS = 20_000;
+
+    @Test
+    void testUsersAreSpreadEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(4, 128);
+        int[] counts = new int[4];
+        for (int i = 0; i < USERS; i++) {
+            counts[ring.shardFor("user-" + i)]++;
+        }
+        for (int count : counts) {
+            assertTrue(Math.abs(count - USERS / 4) < USERS / 4 * 0.2, "Unbalanced shard: " + count);
+        }
+    }
+
+    @Test
+    void testAddingShardOnlyMovesUsersOntoIt() {
+        ConsistentHashRing ring = new ConsistentHashRing(4, 128);
+        ConsistentHashRing next = ring.withShard();
+        int moved = 0;
+        for (int i = 0; i < USERS; i++) {
+            String user = "user-" + i;
+            int before = ring.shardFor(user);
+            int after = next.shardFor(user);
+            if (before != after) {
+                assertEquals(4, after);
+                moved++;
+            }
+        }
+        assertEquals(5, next.size());
+        assertTrue(Math.abs(moved - USERS / 5) < USERS / 5 * 0.25, "Moved: " + moved);
+    }
+
+    @Test
+    void testSingleShardOwnsEverything() {
+        ConsistentHashRing ring = new ConsistentHashRing(1, 16);
+
+        assertEquals(0, ring.shardFor("john"));
+        assertEquals(0, ring.shardFor(""));
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(0, 16));
+    }
+}
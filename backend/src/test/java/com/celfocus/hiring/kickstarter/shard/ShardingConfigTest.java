@@ -0,0 +1,42 @@
+package com.celfocus.hiring.kickstarter.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs two shards in virtual-thread mode, with room for four connections in total.
+ */
+@SpringBootTest(properties = {
+        "spring.threads.virtual.enabled=true",
+        "kickstarter.threads.virtual.max-connections=4",
+        "kickstarter.cart.store.jpa.shards=2",
+        "kickstarter.cart.store.jpa.shard-url=jdbc:h2:mem:sharding-config-test-{shard};DB_CLOSE_DELAY=-1"
+})
+class ShardingConfigTest {
+
+    @Autowired
+    private CartShards cartShards;
+
+    @Autowired
+    private CartShardsEndpoint cartShardsEndpoint;
+
+    @Test
+    void testShardPoolsShareTheVirtualThreadConnectionBound() {
+        assertEquals(2, maximumPoolSize(0));
+        assertEquals(2, maximumPoolSize(1));
+
+        cartShardsEndpoint.addShard();
+
+        for (int shard = 0; shard < 3; shard++) {
+            assertEquals(1, maximumPoolSize(shard));
+        }
+    }
+
+    private int maximumPoolSize(int shard) {
+        return ((HikariDataSource) cartShards.dataSource().shard(shard)).getMaximumPoolSize();
+    }
+}
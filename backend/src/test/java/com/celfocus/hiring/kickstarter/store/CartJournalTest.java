@@ -0,0 +1,150 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartJournalTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void testAppendsRotateSegmentsAndReplayInOrder() throws IOException {
+        var journal = open(1024, false);
+        for (int i = 1; i <= 40; i++) {
+            journal.appendChange(event("john", i));
+        }
+        journal.appendClear("john");
+        journal.appendChange(event("jane", 7));
+        journal.close();
+
+        assertTrue(files("segment-") > 2);
+        List<String> replayed = new ArrayList<>();
+        new CartJournal(dir, 1024, false, false).recover(
+                stored -> fail("no snapshot was written"),
+                event -> replayed.add(event.userId() + ":" + event.changes().cart().getItems().get(0).getQuantity()),
+                userId -> replayed.add(userId + ":cleared"));
+
+        assertEquals(42, replayed.size());
+        assertEquals("john:1", replayed.get(0));
+        assertEquals("john:40", replayed.get(39));
+        assertEquals("john:cleared", replayed.get(40));
+        assertEquals("jane:7", replayed.get(41));
+    }
+
+    @Test
+    void testTornRecordEndsReplayOfItsSegment() throws IOException {
+        var journal = open(64 * 1024, false);
+        journal.appendChange(event("john", 1));
+        long second = journal.appendChange(event("john", 2));
+        journal.close();
+        try (var channel = FileChannel.open(dir.resolve(String.format("segment-%019d", 1)), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), second - 3);
+        }
+
+        List<Integer> replayed = new ArrayList<>();
+        var reopened = new CartJournal(dir, 64 * 1024, false, false);
+        reopened.recover(stored -> { }, event -> replayed.add(event.changes().cart().getItems().get(0).getQuantity()), userId -> { });
+        reopened.appendChange(event("john", 3));
+        reopened.close();
+
+        assertEquals(List.of(1), replayed);
+        replayed.clear();
+        new CartJournal(dir, 64 * 1024, false, false)
+                .recover(stored -> { }, event -> replayed.add(event.changes().cart().getItems().get(0).getQuantity()), userId -> { });
+        assertEquals(List.of(1, 3), replayed);
+    }
+
+    @Test
+    void testSnapshotReplacesEarlierSegments() throws IOException {
+        var journal = open(64 * 1024, false);
+        journal.appendChange(event("john", 1));
+        long from = journal.rotate();
+        journal.writeSnapshot(from, Stream.of(event("john", 1).applyTo(null)));
+        journal.appendChange(event("john", 2));
+        journal.close();
+
+        assertEquals(1, files("snapshot-"));
+        assertEquals(1, files("segment-"));
+        List<String> replayed = new ArrayList<>();
+        new CartJournal(dir, 64 * 1024, false, false).recover(
+                stored -> replayed.add("snapshot:" + stored.cart().getItems().get(0).getQuantity()),
+                event -> replayed.add("event:" + event.changes().cart().getItems().get(0).getQuantity()),
+                userId -> { });
+        assertEquals(List.of("snapshot:1", "event:2"), replayed);
+    }
+
+    @Test
+    void testKeepSegmentsRetainsAuditTrail() throws IOException {
+        var journal = new CartJournal(dir, 64 * 1024, false, true);
+        journal.recover(stored -> { }, event -> { }, userId -> { });
+        journal.appendChange(event("john", 1));
+        journal.writeSnapshot(journal.rotate(), Stream.empty());
+        journal.close();
+
+        assertEquals(2, files("segment-"));
+    }
+
+    @Test
+    void testConcurrentWritersShareFlushes() throws Exception {
+        var journal = open(1024 * 1024, true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> writes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int quantity = i + 1;
+            writes.add(executor.submit(() -> journal.await(journal.appendChange(event("user" + quantity, quantity)))));
+        }
+        for (Future<?> write : writes) {
+            write.get();
+        }
+        executor.shutdown();
+        journal.close();
+
+        int[] replayed = new int[1];
+        new CartJournal(dir, 1024 * 1024, true, false).recover(stored -> { }, event -> replayed[0]++, userId -> { });
+        assertEquals(200, replayed[0]);
+    }
+
+    @Test
+    void testRecordLargerThanSegmentIsRejected() {
+        var journal = open(64, false);
+
+        assertThrows(IllegalArgumentException.class, () -> journal.appendChange(event("a-user-with-a-long-name", 1)));
+    }
+
+    private CartJournal open(int segmentSize, boolean fsync) {
+        var journal = new CartJournal(dir, segmentSize, fsync, false);
+        journal.recover(stored -> { }, event -> { }, userId -> { });
+        return journal;
+    }
+
+    private long files(String prefix) {
+        try (var files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).count();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static CartEvent event(String userId, int quantity) {
+        var item = Carts.newItem(1L, "sku123", BigDecimal.TEN, quantity);
+        return new CartEvent(new StoredCart(1L, Carts.newCart(1L, userId, quantity, List.of(item), new Date())), List.of());
+    }
+}
@@ -0,0 +1,54 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import com.celfocus.hiring.kickstarter.api.CartService;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Cart calls against the {@code memory} engine, watching the database connection pool while they run.
+ */
+@SpringBootTest(properties = "kickstarter.cart.store.type=memory")
+class InMemoryCartStoreConnectionTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @SpyBean
+    private InMemoryCartStore cartStore;
+
+    @Test
+    void testCartCallsHoldNoPooledConnection() throws Exception {
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        List<Integer> activeConnections = new ArrayList<>();
+        doAnswer(invocation -> {
+            activeConnections.add(pool.getHikariPoolMXBean().getActiveConnections());
+            return invocation.callRealMethod();
+        }).when(cartStore).addItem(anyString(), any(), anyString(), any(), anyInt(), anyInt(), any());
+        doAnswer(invocation -> {
+            activeConnections.add(pool.getHikariPoolMXBean().getActiveConnections());
+            return invocation.callRealMethod();
+        }).when(cartStore).find(anyString());
+
+        cartService.addItemToCart("connection-test", new CartItemInput("SKUTEST1"), null);
+        cartService.getCart("connection-test");
+        cartService.clearCart("connection-test", null);
+
+        assertFalse(activeConnections.isEmpty());
+        assertTrue(activeConnections.stream().allMatch(active -> active == 0), activeConnections::toString);
+    }
+}
@@ -0,0 +1,206 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.exception.PreconditionFailedException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryCartStoreTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void testAddItemEnforcesStockLimit() {
+        var store = new InMemoryCartStore(4, false, null);
+
+        assertEquals(Optional.of(1), store.addItem("john", null, "sku123", BigDecimal.TEN, 1, 2, new Date()).map(CartStore.ItemAdded::quantity));
+        assertEquals(Optional.of(2), store.addItem("john", null, "sku123", BigDecimal.TEN, 1, 2, new Date()).map(CartStore.ItemAdded::quantity));
+        assertEquals(Optional.empty(), store.addItem("john", null, "sku123", BigDecimal.TEN, 1, 2, new Date()));
+
+        var cart = store.find("john").orElseThrow();
+        assertEquals(1, cart.getItems().size());
+        assertEquals(2, cart.getItems().get(0).getQuantity());
+    }
+
+    @Test
+    void testUpdateOnlyTouchesExistingCarts() {
+        var store = new InMemoryCartStore(4, false, null);
+
+        assertTrue(store.update("john", null, new Date(), lines -> lines).isEmpty());
+        assertTrue(store.find("john").isEmpty());
+
+        store.createOrUpdate("john", null, new Date(), lines -> List.of(item("sku123", 3)));
+        var updated = store.update("john", null, new Date(), lines -> List.of()).orElseThrow();
+
+        assertTrue(updated.getItems().isEmpty());
+        assertTrue(store.find("john").orElseThrow().getItems().isEmpty());
+    }
+
+    @Test
+    void testFailedChangeWritesNothing() {
+        var store = new InMemoryCartStore(4, false, null);
+        store.addItem("john", null, "sku123", BigDecimal.TEN, 2, 10, new Date());
+
+        assertThrows(IllegalStateException.class, () -> store.update("john", null, new Date(), lines -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(2, store.find("john").orElseThrow().getItems().get(0).getQuantity());
+    }
+
+    @Test
+    void testVersionIsBumpedAndChecked() {
+        var store = new InMemoryCartStore(4, false, null);
+        var added = store.addItem("john", null, "sku123", BigDecimal.TEN, 1, 10, new Date()).orElseThrow();
+        assertEquals(1, added.version().version());
+
+        var updated = store.update("john", added.version(), new Date(), lines -> lines).orElseThrow();
+
+        assertEquals(added.version().next(), CartVersion.of(updated));
+        assertThrows(PreconditionFailedException.class, () -> store.update("john", added.version(), new Date(), lines -> List.of()));
+        assertThrows(PreconditionFailedException.class, () -> store.delete("jane", new CartVersion(1, 1)));
+        assertEquals(1, store.find("john").orElseThrow().getItems().size());
+        assertEquals(2, store.find("john").orElseThrow().getVersion());
+    }
+
+    @Test
+    void testDeleteAndReservedQuantities() {
+        var store = new InMemoryCartStore(4, false, null);
+        store.addItem("john", null, "sku123", BigDecimal.TEN, 2, 10, new Date());
+        store.addItem("jane", null, "sku123", BigDecimal.TEN, 3, 10, new Date());
+
+        assertEquals(Map.of("sku123", 5), store.reservedQuantities());
+        assertEquals(2, store.delete("john", null).orElseThrow().getItems().get(0).getQuantity());
+        assertTrue(store.delete("john", null).isEmpty());
+        assertEquals(Map.of("sku123", 3), store.reservedQuantities());
+    }
+
+    @Test
+    void testPurgeExpiredInBatches() {
+        var store = new InMemoryCartStore(4, false, null);
+        Date old = new Date(0);
+        for (int i = 0; i < 5; i++) {
+            store.addItem("user" + i, null, "sku123", BigDecimal.TEN, 1, 10, old);
+        }
+        store.addItem("fresh", null, "sku123", BigDecimal.TEN, 1, 10, new Date());
+        Date cutoff = new Date(1000);
+
+        var first = store.purgeExpired(cutoff, 3);
+        var second = store.purgeExpired(cutoff, 3);
+
+        assertEquals(3, first.carts());
+        assertEquals(Map.of("sku123", 3), first.quantities());
+        assertEquals(2, second.carts());
+        assertEquals(2, second.items());
+        assertEquals(1, store.size());
+        assertTrue(store.find("fresh").isPresent());
+    }
+
+    @Test
+    void testOffHeapRoundTrip() {
+        var store = new InMemoryCartStore(4, true, null);
+        store.addItem("john", null, "sku123", new BigDecimal("19.99"), 2, 10, new Date(42));
+        store.createOrUpdate("jane", null, null, lines -> List.of(item("sku456", 1)));
+
+        var john = store.find("john").orElseThrow();
+        assertEquals(new BigDecimal("19.99"), john.getItems().get(0).getPrice());
+        assertEquals(new Date(42), john.getLastModified());
+        var jane = store.find("jane").orElseThrow();
+        assertNull(jane.getLastModified());
+        assertNull(jane.getItems().get(0).getPrice());
+    }
+
+    @Test
+    void testJournalReplayRestoresCarts() {
+        var before = new InMemoryCartStore(4, false, journal());
+        before.addItem("john", null, "sku123", BigDecimal.TEN, 2, 10, new Date());
+        before.addItem("john", null, "sku456", BigDecimal.ONE, 1, 10, new Date());
+        before.update("john", null, new Date(), lines -> List.of(lines.get(1)));
+        before.addItem("jane", null, "sku456", BigDecimal.ONE, 1, 10, new Date());
+        before.delete("jane", null);
+
+        var after = new InMemoryCartStore(8, true, journal());
+
+        assertEquals(1, after.size());
+        var john = after.find("john").orElseThrow();
+        assertEquals(1, john.getItems().size());
+        assertEquals("sku456", john.getItems().get(0).getItemId());
+        assertEquals(3, john.getVersion());
+        after.addItem("jane", null, "sku456", BigDecimal.ONE, 1, 10, new Date());
+        assertNotEquals(john.getItems().get(0).getCartId(), after.find("jane").orElseThrow().getItems().get(0).getCartId());
+    }
+
+    @Test
+    void testSnapshotPlusLaterEventsRestoreCarts() throws IOException {
+        var before = new InMemoryCartStore(4, false, journal());
+        before.addItem("john", null, "sku123", BigDecimal.TEN, 2, 10, new Date());
+        before.addItem("jane", null, "sku123", BigDecimal.TEN, 1, 10, new Date());
+        before.snapshot();
+        before.addItem("john", null, "sku123", BigDecimal.TEN, 1, 10, new Date());
+        before.delete("jane", null);
+
+        var after = new InMemoryCartStore(4, false, journal());
+
+        assertEquals(1, after.size());
+        assertEquals(3, after.find("john").orElseThrow().getItems().get(0).getQuantity());
+        assertEquals(2, after.find("john").orElseThrow().getVersion());
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.filter(file -> file.getFileName().toString().startsWith("snapshot-")).count());
+        }
+    }
+
+    @Test
+    void testCloseSnapshotsForWarmRestart() throws IOException {
+        try (var store = new InMemoryCartStore(4, false, journal())) {
+            store.addItem("john", null, "sku123", BigDecimal.TEN, 2, 10, new Date());
+        }
+
+        try (var store = new InMemoryCartStore(4, true, journal())) {
+            assertEquals(2, store.find("john").orElseThrow().getItems().get(0).getQuantity());
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.filter(file -> file.getFileName().toString().startsWith("segment-")).count());
+        }
+    }
+
+    @Test
+    void testChangesBecomeVisibleOnlyOnceDurable() {
+        List<Boolean> visibleBeforeDurable = new ArrayList<>();
+        InMemoryCartStore[] store = new InMemoryCartStore[1];
+        var journal = new CartJournal(dir, 64 * 1024, true, false) {
+            @Override
+            void await(long sequence) {
+                visibleBeforeDurable.add(store[0].find("john").isPresent());
+                super.await(sequence);
+            }
+        };
+        store[0] = new InMemoryCartStore(4, false, journal);
+
+        store[0].addItem("john", null, "sku123", BigDecimal.TEN, 1, 10, new Date());
+        store[0].delete("john", null);
+
+        assertEquals(List.of(false, true), visibleBeforeDurable);
+        assertTrue(store[0].find("john").isEmpty());
+    }
+
+    private CartJournal journal() {
+        return new CartJournal(dir, 64 * 1024, false, false);
+    }
+
+    private static CartItem item(String sku, int quantity) {
+        return Carts.newItem(null, sku, null, quantity);
+    }
+}
@@ -0,0 +1,242 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import com.celfocus.hiring.kickstarter.db.entity.CartEntity;
+import com.celfocus.hiring.kickstarter.db.entity.CartItemEntity;
+import com.celfocus.hiring.kickstarter.db.repo.CartItemRepository;
+import com.celfocus.hiring.kickstarter.db.repo.CartRepository;
+import com.celfocus.hiring.kickstarter.domain.CartVersion;
+import com.celfocus.hiring.kickstarter.exception.PreconditionFailedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JpaCartStoreTest {
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private CartItemRepository cartItemRepository;
+
+    private JpaCartStore cartStore;
+
+    private JpaCartStore optimisticStore;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cartStore = new JpaCartStore(cartRepository, cartItemRepository);
+        optimisticStore = new JpaCartStore(cartRepository, cartItemRepository, true);
+    }
+
+    @Test
+    void testFindReadsProjection() {
+        when(cartRepository.findCartLines("john")).thenReturn(List.of(cartLine("sku123", 2), cartLine("sku456", 1)));
+
+        var cart = cartStore.find("john").orElseThrow();
+
+        assertEquals("john", cart.getUserId());
+        assertEquals(new CartVersion(1, 3), CartVersion.of(cart));
+        assertEquals(2, cart.getItems().size());
+        assertEquals("sku456", cart.getItems().get(1).getItemId());
+        assertThrows(UnsupportedOperationException.class, () -> cart.getItems().remove(0));
+        verify(cartRepository, never()).findWithItemsByUserId(any());
+    }
+
+    @Test
+    void testFindEmptyAndMissingCart() {
+        when(cartRepository.findCartLines("john")).thenReturn(List.of(cartLine(null, null)));
+
+        assertTrue(cartStore.find("john").orElseThrow().getItems().isEmpty());
+        assertTrue(cartStore.find("jane").isEmpty());
+    }
+
+    @Test
+    void testAddItemUpsertsCartAndLine() {
+        when(cartRepository.upsertCart(eq("john"), any(Date.class))).thenReturn(revision(1L, 4L));
+        when(cartItemRepository.upsertItem("john", "sku123", BigDecimal.TEN, 1, 3)).thenReturn(Optional.of(1));
+
+        var added = cartStore.addItem("john", null, "sku123", BigDecimal.TEN, 1, 3, new Date()).orElseThrow();
+
+        assertEquals(1, added.quantity());
+        assertEquals(new CartVersion(1, 4), added.version());
+    }
+
+    @Test
+    void testAddItemWithExpectedVersionChecksIt() {
+        Date now = new Date();
+        when(cartRepository.touchCart("john", 1L, 4L, now)).thenReturn(1);
+        when(cartItemRepository.upsertItem("john", "sku123", BigDecimal.TEN, 1, 3)).thenReturn(Optional.of(2));
+
+        var added = cartStore.addItem("john", new CartVersion(1, 4), "sku123", BigDecimal.TEN, 1, 3, now).orElseThrow();
+
+        assertEquals(new CartVersion(1, 5), added.version());
+        verify(cartRepository, never()).upsertCart(any(), any());
+        assertThrows(PreconditionFailedException.class,
+                () -> cartStore.addItem("john", new CartVersion(1, 3), "sku123", BigDecimal.TEN, 1, 3, now));
+        verify(cartItemRepository).upsertItem(any(), any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testUpdateAppliesDifferenceToEntities() {
+        CartEntity cart = new CartEntity();
+        cart.setId(1L);
+        cart.setUserId("john");
+        cart.getItems().add(line(cart, "sku123", 2));
+        cart.getItems().add(line(cart, "sku456", 1));
+        CartItemEntity unchanged = line(cart, "sku789", 4);
+        cart.getItems().add(unchanged);
+        Date now = new Date();
+        when(cartRepository.touchCart("john", now)).thenReturn(1);
+        when(cartRepository.findWithItemsByUserId("john")).thenReturn(Optional.of(cart));
+
+        var updated = cartStore.update("john", null, now, lines -> List.of(
+                Carts.newItem(null, "sku123", BigDecimal.TEN, 5),
+                lines.get(2),
+                Carts.newItem(null, "sku000", BigDecimal.ONE, 1))).orElseThrow();
+
+        assertEquals(3, updated.getItems().size());
+        assertEquals(3, cart.getItems().size());
+        assertEquals(5, cart.getItems().get(0).getQuantity());
+        assertSame(unchanged, cart.getItems().get(1));
+        assertEquals("sku000", cart.getItems().get(2).getItemId());
+        assertEquals(1L, cart.getItems().get(2).getCartId());
+        var order = inOrder(cartRepository);
+        order.verify(cartRepository).touchCart("john", now);
+        order.verify(cartRepository).findWithItemsByUserId("john");
+    }
+
+    @Test
+    void testOptimisticUpdateSwapsVersionAfterChange() {
+        CartEntity cart = new CartEntity();
+        cart.setId(1L);
+        cart.setUserId("john");
+        cart.setVersion(4);
+        cart.getItems().add(line(cart, "sku123", 2));
+        Date now = new Date();
+        when(cartRepository.findWithItemsByUserId("john")).thenReturn(Optional.of(cart));
+        when(cartRepository.touchCart("john", 1L, 4L, now)).thenReturn(1);
+
+        var updated = optimisticStore.update("john", new CartVersion(1, 4), now,
+                lines -> List.of(Carts.newItem(null, "sku123", BigDecimal.TEN, 3))).orElseThrow();
+
+        assertEquals(new CartVersion(1, 5), CartVersion.of(updated));
+        assertEquals(now, updated.getLastModified());
+        assertEquals(3, cart.getItems().get(0).getQuantity());
+        verify(cartRepository, never()).touchCart(any(), any());
+    }
+
+    @Test
+    void testOptimisticUpdateFailsWhenCartChangedConcurrently() {
+        CartEntity cart = new CartEntity();
+        cart.setId(1L);
+        cart.setUserId("john");
+        cart.setVersion(4);
+        when(cartRepository.findWithItemsByUserId("john")).thenReturn(Optional.of(cart));
+        when(cartRepository.touchCart(eq("john"), eq(1L), eq(4L), any(Date.class))).thenReturn(0);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> optimisticStore.createOrUpdate("john", null, new Date(), lines -> lines));
+        assertThrows(PreconditionFailedException.class,
+                () -> optimisticStore.update("john", new CartVersion(1, 3), new Date(), lines -> lines));
+        verify(cartRepository, never()).upsertCart(any(), any());
+    }
+
+    @Test
+    void testUpdateMissingCart() {
+        assertTrue(cartStore.update("john", null, new Date(), lines -> lines).isEmpty());
+        assertThrows(PreconditionFailedException.class,
+                () -> cartStore.update("john", new CartVersion(1, 1), new Date(), lines -> lines));
+        verify(cartRepository, never()).findWithItemsByUserId(any());
+    }
+
+    @Test
+    void testCreateOrUpdateUpsertsCartFirst() {
+        CartEntity cart = new CartEntity();
+        cart.setUserId("john");
+        when(cartRepository.findWithItemsByUserId("john")).thenReturn(Optional.of(cart));
+
+        cartStore.createOrUpdate("john", null, new Date(), lines -> lines);
+
+        var order = inOrder(cartRepository);
+        order.verify(cartRepository).upsertCart(eq("john"), any(Date.class));
+        order.verify(cartRepository).findWithItemsByUserId("john");
+    }
+
+    @Test
+    void testDeleteReturnsDeletedCart() {
+        CartEntity cart = new CartEntity();
+        cart.setUserId("john");
+        cart.getItems().add(line(cart, "sku123", 2));
+        when(cartRepository.findWithItemsByUserId("john")).thenReturn(Optional.of(cart));
+
+        var deleted = cartStore.delete("john", null).orElseThrow();
+
+        assertEquals(2, deleted.getItems().get(0).getQuantity());
+        verify(cartRepository).delete(cart);
+        assertTrue(cartStore.delete("jane", null).isEmpty());
+    }
+
+    private static CartItemEntity line(CartEntity cart, String sku, int quantity) {
+        CartItemEntity item = new CartItemEntity();
+        item.setCart(cart);
+        item.setCartId(cart.getId());
+        item.setItemId(sku);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private static CartRepository.CartRevision revision(Long cartId, Long version) {
+        return new CartRepository.CartRevision() {
+            public Long getCartId() {
+                return cartId;
+            }
+
+            public Long getVersion() {
+                return version;
+            }
+        };
+    }
+
+    private static CartRepository.CartLine cartLine(String sku, Integer quantity) {
+        return new CartRepository.CartLine() {
+            public Long getCartId() {
+                return 1L;
+            }
+
+            public String getUserId() {
+                return "john";
+            }
+
+            public Long getVersion() {
+                return 3L;
+            }
+
+            public Date getLastModified() {
+                return new Date();
+            }
+
+            public String getItemId() {
+                return sku;
+            }
+
+            public BigDecimal getPrice() {
+                return sku == null ? null : BigDecimal.TEN;
+            }
+
+            public Integer getQuantity() {
+                return quantity;
+            }
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package com.celfocus.hiring.kickstarter.store;
+
+import com.celfocus.hiring.kickstarter.api.CartService;
+import com.celfocus.hiring.kickstarter.api.dto.CartItemInput;
+import com.celfocus.hiring.kickstarter.domain.CartItem;
+import com.celfocus.hiring.kickstarter.shard.CartShards;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the service on three in-memory H2 shards.
+ */
+@SpringBootTest(properties = {
+        "kickstarter.cart.store.jpa.shards=3",
+        "kickstarter.cart.store.jpa.shard-url=jdbc:h2:mem:sharded-cart-test-{shard};DB_CLOSE_DELAY=-1"
+})
+class ShardedCartStoreTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartShards cartShards;
+
+    @Test
+    void testCartsLiveOnTheirUsersShard() {
+        List<String> users = users(30);
+        users.forEach(user -> cartService.addItemToCart(user, new CartItemInput("SKUTEST13"), null));
+
+        int[] perShard = new int[cartShards.count()];
+        for (String user : users) {
+            int shard = cartShards.shardOf(user);
+            perShard[shard]++;
+            assertEquals(1, count(shard, user));
+            assertEquals(1, cartStore.find(user).orElseThrow().getItems().size());
+        }
+        for (int carts : perShard) {
+            assertTrue(carts > 0);
+        }
+        users.forEach(user -> cartService.clearCart(user, null));
+    }
+
+    @Test
+    void testAddShardMovesCartsWhileServing() throws Exception {
+        List<String> users = users(40);
+        users.forEach(user -> cartService.addItemToCart(user, new CartItemInput("SKUTEST20"), null));
+        int shards = cartShards.count();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> adds = new ArrayList<>();
+            for (String user : users) {
+                adds.add(executor.submit(() -> cartService.addItemToCart(user, new CartItemInput("SKUTEST4"), null)));
+            }
+            HikariDataSource shard = new HikariDataSource();
+            shard.setJdbcUrl("jdbc:h2:mem:sharded-cart-test-" + shards + ";DB_CLOSE_DELAY=-1");
+            assertEquals(shards, cartShards.addShard(shard));
+            for (Future<?> add : adds) {
+                add.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int moved = 0;
+        for (String user : users) {
+            var cart = cartStore.find(user).orElseThrow();
+            assertEquals(2, cart.getVersion());
+            assertEquals(Map.of("SKUTEST20", 1, "SKUTEST4", 1), quantities(cart.getItems()));
+            int shard = cartShards.shardOf(user);
+            assertEquals(1, count(shard, user));
+            moved += shard == shards ? 1 : 0;
+        }
+        assertTrue(moved > 0);
+        users.forEach(user -> cartService.clearCart(user, null));
+    }
+
+    @Test
+    void testPurgeAndReservationsCoverEveryShard() {
+        List<String> users = users(20);
+        users.forEach(user -> cartService.addItemToCart(user, new CartItemInput("SKUTEST7"), null));
+        assertEquals(20, cartStore.reservedQuantities().get("SKUTEST7"));
+        assertEquals(cartShards.count(), cartStore.partitions().size());
+
+        var purged = cartStore.purgeExpired(new Date(System.currentTimeMillis() + 60_000), 1000);
+
+        assertTrue(purged.userIds().containsAll(users));
+        assertEquals(20, purged.quantities().get("SKUTEST7"));
+        assertNull(cartStore.reservedQuantities().get("SKUTEST7"));
+    }
+
+    private int count(int shard, String user) {
+        return new JdbcTemplate(cartShards.dataSource().shard(shard))
+                .queryForObject("SELECT COUNT(*) FROM TB_CART WHERE USER_ID = ?", Integer.class, user);
+    }
+
+    private static Map<String, Integer> quantities(List<? extends CartItem> items) {
+        return items.stream().collect(java.util.stream.Collectors.toMap(CartItem::getItemId, CartItem::getQuantity));
+    }
+
+    private static List<String> users(int count) {
+        String prefix = UUID.randomUUID().toString();
+        List<String> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(prefix + "-" + i);
+        }
+        return users;
+    }
+}